@@ -6,17 +6,22 @@ import org.hofftech.parking.controller.TelegramController;
 import org.hofftech.parking.exception.TelegramBotRegistrationException;
 import org.hofftech.parking.factory.CommandFactory;
 import org.hofftech.parking.factory.ParcelAlgorithmFactory;
+import org.hofftech.parking.model.GridMemoryPool;
 import org.hofftech.parking.repository.ParcelRepository;
 import org.hofftech.parking.parcer.CommandParser;
 import org.hofftech.parking.service.*;
 import org.hofftech.parking.util.FileProcessingUtil;
 import org.hofftech.parking.service.json.JsonProcessingService;
+import org.hofftech.parking.service.packingalgorithm.impl.PortfolioTruckAlgorithm;
 import org.hofftech.parking.parcer.ParsingService;
 import org.hofftech.parking.validator.ParcelValidator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
 /**
  * Конфигурационный класс приложения, отвечающий за настройку и создание бинов Spring.
  * <p>
@@ -27,6 +32,7 @@ import org.springframework.context.annotation.Configuration;
  */
 @Configuration
 public class ApplicationConfig {
+    private static final long BYTES_PER_MEGABYTE = 1L << 20;
 
     // Существующие бины...
 
@@ -47,9 +53,37 @@ public class ApplicationConfig {
         return new ParcelService();
     }
 
+    /**
+     * Создаёт сервис грузовиков и настраивает параллельный поиск позиций по грузовикам.
+     *
+     * @param parcelService      зависимость {@link ParcelService}
+     * @param formatterService   зависимость {@link FormatterService}
+     * @param parallelProbing    флаг параллельного поиска позиций, считываемый из свойств приложения
+     * @param parallelMinTrucks  минимальное количество грузовиков для параллельного поиска
+     * @param truckPool          пул грузовиков для повторного использования
+     * @return экземпляр {@link TruckService}
+     */
     @Bean
-    public TruckService truckService(ParcelService parcelService,FormatterService formatterService) {
-        return new TruckService(parcelService,formatterService);
+    public TruckService truckService(ParcelService parcelService, FormatterService formatterService,
+                                     @Value("${packing.parallel.enabled:false}") boolean parallelProbing,
+                                     @Value("${packing.parallel.min-trucks:16}") int parallelMinTrucks,
+                                     TruckPool truckPool) {
+        TruckService truckService = new TruckService(parcelService, formatterService);
+        truckService.setParallelProbing(parallelProbing);
+        truckService.setParallelProbingMinTrucks(parallelMinTrucks);
+        truckService.setTruckPool(truckPool);
+        return truckService;
+    }
+
+    /**
+     * Создаёт пул грузовиков; при нулевом лимите грузовики в пуле не сохраняются.
+     *
+     * @param maxMegabytes лимит памяти пула в мегабайтах, считываемый из свойств приложения
+     * @return экземпляр {@link TruckPool}
+     */
+    @Bean
+    public TruckPool truckPool(@Value("${packing.truck-pool.max-mb:64}") long maxMegabytes) {
+        return new TruckPool(maxMegabytes * BYTES_PER_MEGABYTE);
     }
 
     @Bean
@@ -62,9 +96,20 @@ public class ApplicationConfig {
         return new ParsingService(parcelRepository,parcelValidator);
     }
 
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService portfolioExecutor(@Value("${packing.portfolio.threads:5}") int portfolioThreads) {
+        return PortfolioTruckAlgorithm.newExecutor(portfolioThreads);
+    }
+
     @Bean
-    public ParcelAlgorithmFactory packingStrategyFactory(TruckService truckService) {
-        return new ParcelAlgorithmFactory(truckService);
+    public ParcelAlgorithmFactory packingStrategyFactory(TruckService truckService, ParcelValidator parcelValidator,
+                                                         ExecutorService portfolioExecutor,
+                                                         @Value("${packing.optimal.budget-ms:1000}") long optimizationBudgetMillis) {
+        ParcelAlgorithmFactory factory = new ParcelAlgorithmFactory(truckService);
+        factory.setDefaultOptimizationBudget(Duration.ofMillis(optimizationBudgetMillis));
+        factory.setPortfolioExecutor(portfolioExecutor);
+        factory.setRotatingTruckService(truckService.withParcelService(new RotatingParcelService(parcelValidator)));
+        return factory;
     }
     @Bean
     public ObjectMapper objectMapper() {
@@ -74,8 +119,11 @@ public class ApplicationConfig {
     }
 
     @Bean
-    public JsonProcessingService jsonProcessingService(OrderManagerService orderManagerService, ObjectMapper objectMapper) {
-        return new JsonProcessingService(orderManagerService, objectMapper);
+    public JsonProcessingService jsonProcessingService(OrderManagerService orderManagerService, ObjectMapper objectMapper,
+                                                       ParcelService parcelService, TruckPool truckPool) {
+        JsonProcessingService jsonProcessingService = new JsonProcessingService(orderManagerService, objectMapper, parcelService);
+        jsonProcessingService.setTruckPool(truckPool);
+        return jsonProcessingService;
     }
 
     @Bean
@@ -84,10 +132,31 @@ public class ApplicationConfig {
             TruckService truckService,
             JsonProcessingService jsonProcessingService,
             ParcelAlgorithmFactory parcelAlgorithmFactory,
-            OrderManagerService orderManagerService) {
-        return new FileProcessingUtil(
+            OrderManagerService orderManagerService,
+            ParcelRepository parcelRepository,
+            TruckPool truckPool,
+            @Value("${packing.batch.threads:0}") int batchThreads,
+            @Value("${packing.cache.max-size:128}") int cacheMaxSize,
+            @Value("${packing.cache.ttl-ms:600000}") long cacheTtlMillis,
+            @Value("${packing.off-heap.enabled:false}") boolean offHeapGrids,
+            @Value("${packing.off-heap.max-pooled-mb:256}") long maxPooledMegabytes) {
+        FileProcessingUtil fileProcessingUtil = new FileProcessingUtil(
                 parsingService, truckService,
                 jsonProcessingService, parcelAlgorithmFactory, orderManagerService);
+        if (batchThreads > 0) {
+            fileProcessingUtil.setBatchThreads(batchThreads);
+        }
+        fileProcessingUtil.setTruckPool(truckPool);
+        if (cacheMaxSize > 0) {
+            PackingResultCache packingResultCache = new PackingResultCache(cacheMaxSize, Duration.ofMillis(cacheTtlMillis));
+            packingResultCache.setTruckPool(truckPool);
+            parcelRepository.addChangeListener(packingResultCache::invalidateAll);
+            fileProcessingUtil.setPackingResultCache(packingResultCache);
+        }
+        if (offHeapGrids) {
+            fileProcessingUtil.setGridMemoryPool(new GridMemoryPool(maxPooledMegabytes * BYTES_PER_MEGABYTE));
+        }
+        return fileProcessingUtil;
     }
 
     @Bean
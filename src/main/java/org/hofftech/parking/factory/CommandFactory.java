@@ -49,7 +49,7 @@ public class CommandFactory {
             case UPDATE -> new UpdateUserCommand(repository, parcelValidator);
             case DELETE -> new DeleteUserCommand(repository);
             case LIST -> new CreateParcelCommand(repository,formatterService);
-            case LOAD -> new LoadUserCommand(fileProcessingUtil);
+            case LOAD -> new LoadUserCommand(fileProcessingUtil, formatterService);
             case UNLOAD -> new UnloadUserCommand(jsonProcessingService, fileSavingService);
             case BILLING -> new BillingUserCommand(orderManagerService);
             case START -> new StartUserCommand();
@@ -2,10 +2,20 @@ package org.hofftech.parking.factory;
 
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.model.LoadRequest;
 import org.hofftech.parking.service.TruckService;
 import org.hofftech.parking.service.packingalgorithm.PackingAlgorithm;
+import org.hofftech.parking.service.packingalgorithm.impl.BestFitTruckAlgorithm;
+import org.hofftech.parking.service.packingalgorithm.impl.BranchAndBoundTruckAlgorithm;
+import org.hofftech.parking.service.packingalgorithm.impl.ImprovedTruckAlgorithm;
 import org.hofftech.parking.service.packingalgorithm.impl.IndividualTruckAlgorithm;
 import org.hofftech.parking.service.packingalgorithm.impl.MultipleTruckAlgorithm;
+import org.hofftech.parking.service.packingalgorithm.impl.PortfolioTruckAlgorithm;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
 
 
 /**
@@ -14,10 +24,32 @@ import org.hofftech.parking.service.packingalgorithm.impl.MultipleTruckAlgorithm
  * Данная фабрика предоставляет метод для создания стратегии упаковки в зависимости от заданного условия.
  * </p>
  */
+@Slf4j
 @RequiredArgsConstructor
 public class ParcelAlgorithmFactory {
+    private static final Duration DEFAULT_OPTIMIZATION_BUDGET = Duration.ofSeconds(1);
+
     private final TruckService truckService;
 
+    /**
+     * Время поиска для оптимизирующего и портфельного алгоритмов и для улучшения, если оно не указано в команде.
+     */
+    @Setter
+    private Duration defaultOptimizationBudget = DEFAULT_OPTIMIZATION_BUDGET;
+
+    /**
+     * Сервис грузовиков, разрешающий поворачивать посылки; используется, если в команде указан поворот.
+     */
+    @Setter
+    private TruckService rotatingTruckService;
+
+    /**
+     * Пул потоков, в котором портфельный алгоритм выполняет эвристики, или {@code null}, если пул не настроен.
+     * Пул создаётся и закрывается конфигурацией приложения.
+     */
+    @Setter
+    private ExecutorService portfolioExecutor;
+
     /**
      * Создает стратегию упаковки в зависимости от переданного параметра.
      *
@@ -31,4 +63,62 @@ public class ParcelAlgorithmFactory {
             return new MultipleTruckAlgorithm(truckService);
         }
     }
+
+    /**
+     * Создает стратегию упаковки по флагам запроса на погрузку.
+     * Приоритет выбора: простой, оптимизирующий, портфельный, затем алгоритм наилучшего размещения.
+     * Если в запросе указано улучшение, результат любого алгоритма, кроме простого, дополнительно улучшается.
+     * Если в запросе разрешён поворот посылок, алгоритм использует сервис грузовиков с поворотами.
+     * Если пул потоков портфельного алгоритма не настроен, вместо него используется алгоритм наилучшего размещения.
+     *
+     * @param request запрос на погрузку
+     * @return экземпляр {@link PackingAlgorithm}, соответствующий выбранной стратегии
+     */
+    public PackingAlgorithm createStrategy(LoadRequest request) {
+        TruckService service = resolveTruckService(request);
+        if (request.isEasyAlgorithm()) {
+            return new IndividualTruckAlgorithm(service);
+        }
+        PackingAlgorithm packingAlgorithm = createPackingStrategy(request, service);
+        if (request.isImprovement()) {
+            return new ImprovedTruckAlgorithm(packingAlgorithm, service, resolveBudget(request));
+        }
+        return packingAlgorithm;
+    }
+
+    private PackingAlgorithm createPackingStrategy(LoadRequest request, TruckService service) {
+        if (request.isOptimalAlgorithm()) {
+            return new BranchAndBoundTruckAlgorithm(service, resolveBudget(request));
+        } else if (request.isPortfolioAlgorithm() && portfolioExecutor != null) {
+            return new PortfolioTruckAlgorithm(service, resolveBudget(request), portfolioExecutor);
+        } else if (request.isPortfolioAlgorithm()) {
+            log.warn("Пул потоков портфельного алгоритма не настроен, посылки будут размещены алгоритмом наилучшего размещения.");
+            return new BestFitTruckAlgorithm(service);
+        } else if (request.isBestFitAlgorithm()) {
+            return new BestFitTruckAlgorithm(service);
+        } else {
+            return new MultipleTruckAlgorithm(service);
+        }
+    }
+
+    /**
+     * Возвращает сервис грузовиков для запроса: с поворотами посылок, если они разрешены и сервис настроен.
+     *
+     * @param request запрос на погрузку
+     * @return сервис грузовиков
+     */
+    public TruckService resolveTruckService(LoadRequest request) {
+        if (!request.isRotation()) {
+            return truckService;
+        }
+        if (rotatingTruckService == null) {
+            log.warn("Сервис с поворотами посылок не настроен, посылки будут размещены без поворотов.");
+            return truckService;
+        }
+        return rotatingTruckService;
+    }
+
+    private Duration resolveBudget(LoadRequest request) {
+        return request.optimizationBudget() != null ? request.optimizationBudget() : defaultOptimizationBudget;
+    }
 }
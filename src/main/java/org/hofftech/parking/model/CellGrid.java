@@ -0,0 +1,270 @@
+package org.hofftech.parking.model;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Символьная сетка грузовика для отображения, хранящаяся квадратными плитками.
+ * <p>
+ * Плитка выделяется при первой записи в неё, поэтому пустые области не занимают памяти:
+ * чтение из невыделенной плитки возвращает пробел. Плитка, целиком заполненная одним символом,
+ * заменяется этим символом, и её массив освобождается. Так большой грузовик с несколькими
+ * посылками или заполненный однотипными посылками хранит только плитки на границах посылок.
+ * Крайние плитки обрезаются по размеру сетки, поэтому сетка маленького грузовика занимает
+ * ровно одну плитку его размера.
+ * </p>
+ * <p>
+ * Копия сетки разделяет с исходной массивы плиток и копирует плитку только при первой записи в неё.
+ * </p>
+ * <p>
+ * Сетка, созданная в потоке с открытой областью {@link GridArena}, выделяет плитки вне кучи из этой области;
+ * иначе плитки выделяются в куче.
+ * </p>
+ */
+public class CellGrid {
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final char EMPTY_CELL = ' ';
+    private static final char NO_SYMBOL = '\0';
+
+    private final int width;
+    private final int height;
+    private final int tilesAcross;
+    private final GridArena arena;
+    private final CharBuffer[] tiles;
+    private final char[] uniformTiles;
+    private final char[] tileSymbols;
+    private final int[] filledCells;
+    private final boolean[] sharedTiles;
+
+    /**
+     * Создаёт пустую сетку указанного размера без выделения плиток.
+     *
+     * @param width  ширина сетки
+     * @param height высота сетки
+     */
+    public CellGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesAcross = tilesFor(width);
+        this.arena = GridArena.current();
+        int tileCount = tilesAcross * tilesFor(height);
+        this.tiles = new CharBuffer[tileCount];
+        this.uniformTiles = new char[tileCount];
+        this.tileSymbols = new char[tileCount];
+        this.filledCells = new int[tileCount];
+        this.sharedTiles = new boolean[tileCount];
+    }
+
+    /**
+     * Создаёт копию сетки в той же области памяти.
+     * Плитки разделяются с исходной сеткой и помечаются общими в обеих сетках.
+     *
+     * @param source копируемая сетка
+     */
+    public CellGrid(CellGrid source) {
+        this.width = source.width;
+        this.height = source.height;
+        this.tilesAcross = source.tilesAcross;
+        this.arena = source.arena;
+        this.tiles = source.tiles.clone();
+        this.uniformTiles = source.uniformTiles.clone();
+        this.tileSymbols = source.tileSymbols.clone();
+        this.filledCells = source.filledCells.clone();
+        this.sharedTiles = new boolean[tiles.length];
+
+        Arrays.fill(sharedTiles, true);
+        Arrays.fill(source.sharedTiles, true);
+    }
+
+    /**
+     * Возвращает символ клетки.
+     *
+     * @param x координата X клетки
+     * @param y координата Y клетки
+     * @return символ клетки или пробел для пустой клетки
+     * @throws IllegalStateException если область памяти сетки закрыта
+     */
+    public char get(int x, int y) {
+        ensureArenaOpen();
+        int tileIndex = tileIndex(x, y);
+        CharBuffer tile = tiles[tileIndex];
+        if (tile == null) {
+            return uniformTiles[tileIndex] == NO_SYMBOL ? EMPTY_CELL : uniformTiles[tileIndex];
+        }
+        return tile.get(cellOffset(x, y));
+    }
+
+    /**
+     * Записывает символ в клетку, при необходимости выделяя или копируя её плитку.
+     *
+     * @param x      координата X клетки
+     * @param y      координата Y клетки
+     * @param symbol символ посылки
+     * @throws IllegalStateException если область памяти сетки закрыта
+     */
+    public void set(int x, int y, char symbol) {
+        ensureArenaOpen();
+        int tileIndex = tileIndex(x, y);
+        CharBuffer tile = writableTile(tileIndex);
+        int offset = cellOffset(x, y);
+        if (tile.get(offset) == EMPTY_CELL) {
+            filledCells[tileIndex]++;
+        }
+        tile.put(offset, symbol);
+
+        if (filledCells[tileIndex] == 1 && tileSymbols[tileIndex] == NO_SYMBOL) {
+            tileSymbols[tileIndex] = symbol;
+        } else if (tileSymbols[tileIndex] != symbol) {
+            tileSymbols[tileIndex] = NO_SYMBOL;
+        }
+        if (tileSymbols[tileIndex] != NO_SYMBOL && filledCells[tileIndex] == tileCapacity(tileIndex)) {
+            uniformTiles[tileIndex] = symbol;
+            if (arena != null && !sharedTiles[tileIndex]) {
+                arena.releaseTile(tile);
+            }
+            tiles[tileIndex] = null;
+            sharedTiles[tileIndex] = false;
+        }
+    }
+
+    /**
+     * Очищает клетку. Плитка, в которой не осталось заполненных клеток, освобождается.
+     *
+     * @param x координата X клетки
+     * @param y координата Y клетки
+     * @throws IllegalStateException если область памяти сетки закрыта
+     */
+    public void clear(int x, int y) {
+        int tileIndex = tileIndex(x, y);
+        if (get(x, y) == EMPTY_CELL) {
+            return;
+        }
+        CharBuffer tile = writableTile(tileIndex);
+        tile.put(cellOffset(x, y), EMPTY_CELL);
+        filledCells[tileIndex]--;
+
+        if (filledCells[tileIndex] == 0) {
+            tileSymbols[tileIndex] = NO_SYMBOL;
+            if (arena != null) {
+                arena.releaseTile(tile);
+            }
+            tiles[tileIndex] = null;
+        }
+    }
+
+    /**
+     * Очищает сетку для повторного использования. Собственные плитки заполняются пробелами и остаются выделенными,
+     * а плитки, разделяемые с другими сетками, и однородные плитки сбрасываются.
+     */
+    public void reset() {
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null && !sharedTiles[i]) {
+                fill(tiles[i], EMPTY_CELL);
+            } else {
+                tiles[i] = null;
+            }
+        }
+        Arrays.fill(uniformTiles, NO_SYMBOL);
+        Arrays.fill(tileSymbols, NO_SYMBOL);
+        Arrays.fill(filledCells, 0);
+        Arrays.fill(sharedTiles, false);
+    }
+
+    /**
+     * Проверяет, размещены ли плитки сетки в куче, а не в области памяти вне кучи.
+     *
+     * @return {@code true}, если сетка не привязана к области {@link GridArena}
+     */
+    public boolean isOnHeap() {
+        return arena == null;
+    }
+
+    /**
+     * Возвращает количество выделенных плиток, то есть плиток с пустыми клетками и разными символами.
+     *
+     * @return количество выделенных плиток
+     */
+    public int getAllocatedTiles() {
+        int allocated = 0;
+        for (CharBuffer tile : tiles) {
+            if (tile != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * Возвращает плитку, доступную для записи: выделяет её, разворачивает однородную плитку
+     * или копирует плитку, разделяемую с другой сеткой.
+     */
+    private CharBuffer writableTile(int tileIndex) {
+        CharBuffer tile = tiles[tileIndex];
+        if (tile == null) {
+            tile = allocateTile(tileCapacity(tileIndex));
+            fill(tile, uniformTiles[tileIndex] == NO_SYMBOL ? EMPTY_CELL : uniformTiles[tileIndex]);
+            uniformTiles[tileIndex] = NO_SYMBOL;
+            tiles[tileIndex] = tile;
+            sharedTiles[tileIndex] = false;
+        } else if (sharedTiles[tileIndex]) {
+            CharBuffer shared = tile;
+            tile = allocateTile(shared.capacity());
+            tile.put(0, shared, 0, shared.capacity());
+            tiles[tileIndex] = tile;
+            sharedTiles[tileIndex] = false;
+        }
+        return tile;
+    }
+
+    /**
+     * Проверяет, что область памяти сетки открыта, независимо от того, выделена ли плитка клетки.
+     *
+     * @throws IllegalStateException если область памяти сетки закрыта
+     */
+    private void ensureArenaOpen() {
+        if (arena != null) {
+            arena.ensureOpen();
+        }
+    }
+
+    private static void fill(CharBuffer tile, char symbol) {
+        if (tile.hasArray()) {
+            Arrays.fill(tile.array(), tile.arrayOffset(), tile.arrayOffset() + tile.capacity(), symbol);
+            return;
+        }
+        for (int i = 0; i < tile.capacity(); i++) {
+            tile.put(i, symbol);
+        }
+    }
+
+    private CharBuffer allocateTile(int cells) {
+        return arena == null ? CharBuffer.allocate(cells) : arena.allocateTile(cells);
+    }
+
+    /**
+     * Возвращает количество клеток плитки, лежащих внутри сетки; крайние плитки могут быть неполными.
+     */
+    private int tileCapacity(int tileIndex) {
+        int tileX = (tileIndex % tilesAcross) << TILE_SHIFT;
+        int tileY = (tileIndex / tilesAcross) << TILE_SHIFT;
+        return Math.min(TILE_SIZE, width - tileX) * Math.min(TILE_SIZE, height - tileY);
+    }
+
+    private int tileIndex(int x, int y) {
+        return (y >>> TILE_SHIFT) * tilesAcross + (x >>> TILE_SHIFT);
+    }
+
+    /**
+     * Возвращает смещение клетки в массиве её плитки; строки плитки имеют ширину плитки, обрезанной по сетке.
+     */
+    private int cellOffset(int x, int y) {
+        int tileWidth = Math.min(TILE_SIZE, width - (x & ~TILE_MASK));
+        return (y & TILE_MASK) * tileWidth + (x & TILE_MASK);
+    }
+
+    private static int tilesFor(int cells) {
+        return (cells + TILE_MASK) >>> TILE_SHIFT;
+    }
+}
@@ -0,0 +1,225 @@
+package org.hofftech.parking.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Неизменяемое скомпилированное представление формы посылки.
+ * <p>
+ * Строится один раз при создании или изменении посылки и содержит всё, что нужно
+ * для перебора позиций без выделения памяти: строки формы снизу вверх, битовые маски строк,
+ * ширины строк, габаритный прямоугольник, требуемую опору нижней строки, количество заполненных клеток
+ * и профиль нижних клеток по столбцам, по которому посылка укладывается на «горизонт» грузовика.
+ * Кроме того, заполненные клетки формы разбиты на прямоугольные блоки, по которым обновляется
+ * и проверяется индекс свободного пространства грузовика.
+ * Строки и маски хранятся в порядке снизу вверх, то есть строка {@code 0} — нижняя строка посылки.
+ * </p>
+ */
+@Getter
+public final class CompiledShape {
+    private static final char EMPTY_SPACE = ' ';
+    private static final double SUPPORT_FACTOR = 0.5;
+    private static final int BOTTOM_ROW_INDEX = 0;
+    private static final int WORD_SHIFT = 6;
+    private static final int EMPTY_COLUMN = -1;
+
+    private final List<String> rows;
+    @Getter(AccessLevel.NONE)
+    private final long[][] rowMasks;
+    @Getter(AccessLevel.NONE)
+    private final int[] rowWidths;
+    @Getter(AccessLevel.NONE)
+    private final int[] rowFilledCells;
+    @Getter(AccessLevel.NONE)
+    private final int[] columnBottoms;
+    private final int width;
+    private final int height;
+    private final int requiredSupport;
+    private final int filledCells;
+    private final List<GridRectangle> blocks;
+
+    private CompiledShape(List<String> rows, long[][] rowMasks, int[] rowWidths, int[] columnBottoms,
+                          int width, int filledCells) {
+        this.rows = rows;
+        this.rowMasks = rowMasks;
+        this.rowWidths = rowWidths;
+        this.columnBottoms = columnBottoms;
+        this.rowFilledCells = new int[rowMasks.length];
+        for (int y = 0; y < rowMasks.length; y++) {
+            for (long word : rowMasks[y]) {
+                rowFilledCells[y] += Long.bitCount(word);
+            }
+        }
+        this.width = width;
+        this.height = rows.size();
+        this.requiredSupport = rows.isEmpty()
+                ? 0
+                : (int) Math.ceil(rows.get(BOTTOM_ROW_INDEX).length() * SUPPORT_FACTOR);
+        this.filledCells = filledCells;
+        this.blocks = collectBlocks(rowMasks, rowWidths);
+    }
+
+    /**
+     * Компилирует форму посылки, заданную сверху вниз, как она хранится в {@link Parcel}.
+     *
+     * @param shape форма посылки в виде списка строк сверху вниз
+     * @return скомпилированная форма
+     */
+    public static CompiledShape compile(List<String> shape) {
+        List<String> bottomUpRows = new ArrayList<>(shape);
+        Collections.reverse(bottomUpRows);
+
+        int height = bottomUpRows.size();
+        long[][] rowMasks = new long[height][];
+        int[] rowWidths = new int[height];
+        int width = 0;
+        int filledCells = 0;
+
+        for (int y = 0; y < height; y++) {
+            String row = bottomUpRows.get(y);
+            long[] mask = new long[Truck.wordsFor(row.length())];
+            for (int x = 0; x < row.length(); x++) {
+                if (row.charAt(x) != EMPTY_SPACE) {
+                    mask[x >>> WORD_SHIFT] |= 1L << x;
+                    filledCells++;
+                }
+            }
+            rowMasks[y] = mask;
+            rowWidths[y] = row.length();
+            width = Math.max(width, row.length());
+        }
+
+        int[] columnBottoms = new int[width];
+        Arrays.fill(columnBottoms, EMPTY_COLUMN);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height && columnBottoms[x] == EMPTY_COLUMN; y++) {
+                if (x < rowWidths[y] && isBitSet(rowMasks[y], x)) {
+                    columnBottoms[x] = y;
+                }
+            }
+        }
+        return new CompiledShape(List.copyOf(bottomUpRows), rowMasks, rowWidths, columnBottoms, width, filledCells);
+    }
+
+    /**
+     * Возвращает битовую маску строки формы. Массив не копируется и не должен изменяться вызывающей стороной.
+     *
+     * @param y индекс строки снизу вверх
+     * @return битовая маска строки, бит {@code i} соответствует столбцу {@code i}
+     */
+    public long[] rowMask(int y) {
+        return rowMasks[y];
+    }
+
+    /**
+     * Возвращает ширину строки формы.
+     *
+     * @param y индекс строки снизу вверх
+     * @return ширина строки
+     */
+    public int rowWidth(int y) {
+        return rowWidths[y];
+    }
+
+    /**
+     * Возвращает количество заполненных клеток в строке формы.
+     *
+     * @param y индекс строки снизу вверх
+     * @return количество заполненных клеток строки
+     */
+    public int rowFilledCells(int y) {
+        return rowFilledCells[y];
+    }
+
+    /**
+     * Возвращает битовую маску нижней строки, по которой проверяется опора посылки.
+     *
+     * @return битовая маска нижней строки
+     */
+    public long[] bottomRowMask() {
+        return rowMasks[BOTTOM_ROW_INDEX];
+    }
+
+    /**
+     * Проверяет, занята ли клетка формы.
+     *
+     * @param x столбец формы
+     * @param y индекс строки снизу вверх
+     * @return {@code true}, если клетка принадлежит посылке
+     */
+    public boolean isFilled(int x, int y) {
+        return x < rowWidths[y] && isBitSet(rowMasks[y], x);
+    }
+
+    /**
+     * Возвращает индекс самой нижней заполненной клетки столбца формы.
+     *
+     * @param x столбец формы
+     * @return индекс строки снизу вверх или {@code -1}, если столбец пуст
+     */
+    public int columnBottom(int x) {
+        return columnBottoms[x];
+    }
+
+    /**
+     * Разбивает заполненные клетки формы на прямоугольные блоки: непрерывные отрезки строк,
+     * совпадающие по положению в соседних строках, объединяются в один блок.
+     *
+     * @param rowMasks  битовые маски строк снизу вверх
+     * @param rowWidths ширины строк снизу вверх
+     * @return неизменяемый список блоков
+     */
+    private static List<GridRectangle> collectBlocks(long[][] rowMasks, int[] rowWidths) {
+        List<GridRectangle> blocks = new ArrayList<>();
+        List<GridRectangle> open = new ArrayList<>();
+
+        for (int y = 0; y < rowMasks.length; y++) {
+            List<GridRectangle> next = new ArrayList<>();
+            int x = 0;
+            while (x < rowWidths[y]) {
+                if (!isBitSet(rowMasks[y], x)) {
+                    x++;
+                    continue;
+                }
+                int runStart = x;
+                while (x < rowWidths[y] && isBitSet(rowMasks[y], x)) {
+                    x++;
+                }
+                next.add(extendOrOpen(open, runStart, x - runStart, y));
+            }
+            blocks.addAll(open);
+            open = next;
+        }
+        blocks.addAll(open);
+        return List.copyOf(blocks);
+    }
+
+    /**
+     * Продлевает вверх блок предыдущей строки с тем же отрезком или открывает новый блок.
+     *
+     * @param open   блоки, открытые на предыдущей строке; продлённый блок из него удаляется
+     * @param x      начало отрезка
+     * @param width  длина отрезка
+     * @param y      текущая строка
+     * @return продлённый или новый блок
+     */
+    private static GridRectangle extendOrOpen(List<GridRectangle> open, int x, int width, int y) {
+        for (int i = 0; i < open.size(); i++) {
+            GridRectangle block = open.get(i);
+            if (block.x() == x && block.width() == width) {
+                open.remove(i);
+                return new GridRectangle(x, block.y(), width, block.height() + 1);
+            }
+        }
+        return new GridRectangle(x, y, width, 1);
+    }
+
+    private static boolean isBitSet(long[] mask, int x) {
+        return (mask[x >>> WORD_SHIFT] & (1L << x)) != 0;
+    }
+}
@@ -0,0 +1,330 @@
+package org.hofftech.parking.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Индекс свободного пространства грузовика в виде множества максимальных пустых прямоугольников.
+ * <p>
+ * Изначально индекс содержит один прямоугольник размером с грузовик. При каждом занятии прямоугольной
+ * области все пересекающиеся с ней свободные прямоугольники разрезаются на части слева, справа, снизу и сверху
+ * от занятой области, после чего удаляются части, целиком вложенные в другие свободные прямоугольники.
+ * Таким образом индекс всегда хранит ровно множество максимальных пустых прямоугольников, и посылку,
+ * чей заполненный блок не помещается ни в один из них, можно отклонить без перебора позиций.
+ * </p>
+ * <p>
+ * При освобождении области индекс обновляется без пересчёта всего грузовика: добавляются только максимальные
+ * пустые прямоугольники, задевающие освобождённые клетки, а прежние прямоугольники, вложенные в них, удаляются.
+ * Остальные прямоугольники остаются максимальными, так как не задевали освобождённых клеток.
+ * </p>
+ * <p>
+ * Для каждой ширины хранится наибольшая высота свободного прямоугольника не уже неё, поэтому {@link #canFit}
+ * отвечает за постоянное время; таблица пересчитывается при каждом изменении множества.
+ * В сильно раздробленном грузовике число максимальных прямоугольников растёт быстро, поэтому оно ограничено
+ * {@value #MAX_RECTANGLES}. При превышении предела индекс переходит в переполненное состояние: прямоугольники
+ * больше не хранятся, а {@link #canFit} отвечает по таблице на момент переполнения, которая остаётся оценкой сверху,
+ * пока место только занимается. После освобождения места в переполненном индексе {@link #canFit} всегда
+ * возвращает {@code true} для областей не больше грузовика. Отклонение посылки при этом остаётся верным,
+ * а проверку позиций выполняет карта занятости.
+ * </p>
+ */
+public class FreeSpaceIndex {
+    private static final int START_POSITION = 0;
+    private static final int NO_RUN = -1;
+
+    /**
+     * Наибольшее количество хранимых прямоугольников, после которого индекс переходит в переполненное состояние.
+     */
+    static final int MAX_RECTANGLES = 512;
+
+    private final int width;
+    private final int height;
+    private final List<GridRectangle> rectangles = new ArrayList<>();
+
+    /**
+     * Наибольшая высота свободного прямоугольника шириной не меньше индекса элемента.
+     */
+    private final int[] maxHeightForWidth;
+
+    /**
+     * Признак переполнения: прямоугольники не хранятся, а {@link #maxHeightForWidth} — оценка сверху.
+     */
+    private boolean saturated;
+
+    /**
+     * Создаёт индекс для пустого грузовика указанного размера.
+     *
+     * @param width  ширина грузовика
+     * @param height высота грузовика
+     */
+    public FreeSpaceIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.maxHeightForWidth = new int[width + 1];
+        rectangles.add(new GridRectangle(START_POSITION, START_POSITION, width, height));
+        Arrays.fill(maxHeightForWidth, height);
+    }
+
+    /**
+     * Создаёт копию индекса. Прямоугольники неизменяемы, поэтому копируется только их список и таблица высот.
+     *
+     * @param source копируемый индекс
+     */
+    public FreeSpaceIndex(FreeSpaceIndex source) {
+        width = source.width;
+        height = source.height;
+        rectangles.addAll(source.rectangles);
+        maxHeightForWidth = source.maxHeightForWidth.clone();
+        saturated = source.saturated;
+    }
+
+    /**
+     * Отмечает прямоугольную область как занятую и обновляет множество максимальных пустых прямоугольников.
+     *
+     * @param occupied занятая область
+     */
+    public void occupy(GridRectangle occupied) {
+        if (saturated) {
+            return;
+        }
+        List<GridRectangle> pieces = new ArrayList<>();
+        rectangles.removeIf(free -> {
+            if (!free.intersects(occupied)) {
+                return false;
+            }
+            split(free, occupied, pieces);
+            return true;
+        });
+
+        for (int i = 0; i < pieces.size(); i++) {
+            GridRectangle piece = pieces.get(i);
+            if (!isContainedInOther(piece, pieces, i)) {
+                rectangles.add(piece);
+            }
+        }
+        updateHeightTable();
+    }
+
+    /**
+     * Отмечает прямоугольные области как освобождённые и обновляет множество максимальных пустых прямоугольников.
+     * <p>
+     * Клетки областей уже должны быть свободны в {@code occupancy}. Для каждой строки области перебираются
+     * горизонтальные отрезки её пустого участка, задевающие область; высота отрезка вверх и вниз берётся
+     * по наименьшему свободному столбцу, а сохраняется отрезок, который нельзя расширить без уменьшения высоты.
+     * Длины свободных участков столбцов вычисляются один раз на столбец и переиспользуются для всех строк области.
+     * </p>
+     *
+     * @param released  освобождённые области
+     * @param occupancy занятость клеток грузовика после освобождения
+     */
+    public void release(List<GridRectangle> released, CellOccupancy occupancy) {
+        if (saturated) {
+            Arrays.fill(maxHeightForWidth, height);
+            return;
+        }
+        Set<GridRectangle> added = new LinkedHashSet<>();
+        for (GridRectangle area : released) {
+            collectMaximalAround(area, occupancy, added);
+        }
+        rectangles.removeIf(free -> isContainedInAny(free, added));
+        for (GridRectangle rectangle : added) {
+            if (!rectangles.contains(rectangle)) {
+                rectangles.add(rectangle);
+            }
+        }
+        updateHeightTable();
+    }
+
+    /**
+     * Проверяет, существует ли свободный прямоугольник, вмещающий область указанного размера.
+     * В переполненном индексе ответ {@code true} означает лишь, что область может поместиться.
+     *
+     * @param width  ширина области
+     * @param height высота области
+     * @return {@code true}, если такая область может поместиться в грузовик
+     */
+    public boolean canFit(int width, int height) {
+        return width <= this.width && height <= maxHeightForWidth[width];
+    }
+
+    /**
+     * Проверяет, переполнен ли индекс.
+     *
+     * @return {@code true}, если прямоугольников стало больше {@value #MAX_RECTANGLES} и они больше не хранятся
+     */
+    public boolean isSaturated() {
+        return saturated;
+    }
+
+    /**
+     * Возвращает текущие максимальные пустые прямоугольники.
+     *
+     * @return неизменяемый список свободных прямоугольников; пустой, если индекс переполнен
+     */
+    public List<GridRectangle> getRectangles() {
+        return Collections.unmodifiableList(rectangles);
+    }
+
+    /**
+     * Разрезает свободный прямоугольник занятой областью на части, не пересекающиеся с ней.
+     *
+     * @param free     свободный прямоугольник
+     * @param occupied занятая область
+     * @param pieces   список, в который добавляются получившиеся части
+     */
+    private void split(GridRectangle free, GridRectangle occupied, List<GridRectangle> pieces) {
+        int freeRight = free.x() + free.width();
+        int freeTop = free.y() + free.height();
+        int occupiedRight = occupied.x() + occupied.width();
+        int occupiedTop = occupied.y() + occupied.height();
+
+        if (occupied.x() > free.x()) {
+            pieces.add(new GridRectangle(free.x(), free.y(), occupied.x() - free.x(), free.height()));
+        }
+        if (occupiedRight < freeRight) {
+            pieces.add(new GridRectangle(occupiedRight, free.y(), freeRight - occupiedRight, free.height()));
+        }
+        if (occupied.y() > free.y()) {
+            pieces.add(new GridRectangle(free.x(), free.y(), free.width(), occupied.y() - free.y()));
+        }
+        if (occupiedTop < freeTop) {
+            pieces.add(new GridRectangle(free.x(), occupiedTop, free.width(), freeTop - occupiedTop));
+        }
+    }
+
+    /**
+     * Проверяет, вложена ли новая часть в уже сохранённый прямоугольник или в другую новую часть.
+     * Из одинаковых частей сохраняется только первая.
+     *
+     * @param piece  проверяемая часть
+     * @param pieces все новые части
+     * @param index  индекс проверяемой части
+     * @return {@code true}, если часть не является максимальной
+     */
+    private boolean isContainedInOther(GridRectangle piece, List<GridRectangle> pieces, int index) {
+        for (GridRectangle free : rectangles) {
+            if (free.contains(piece)) {
+                return true;
+            }
+        }
+        for (int j = 0; j < pieces.size(); j++) {
+            GridRectangle other = pieces.get(j);
+            if (j != index && other.contains(piece) && (!piece.contains(other) || j < index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Собирает максимальные пустые прямоугольники, задевающие освобождённую область.
+     */
+    private void collectMaximalAround(GridRectangle area, CellOccupancy occupancy, Set<GridRectangle> found) {
+        int[] runBottom = new int[width];
+        int[] runTop = new int[width];
+        Arrays.fill(runTop, NO_RUN);
+        for (int rowY = area.y(); rowY < area.y() + area.height(); rowY++) {
+            int left = area.x();
+            while (left > START_POSITION && !occupancy.isOccupied(left - 1, rowY)) {
+                left--;
+            }
+            int right = area.x() + area.width();
+            while (right < width && !occupancy.isOccupied(right, rowY)) {
+                right++;
+            }
+            for (int x = left; x < right; x++) {
+                if (rowY < runBottom[x] || rowY >= runTop[x]) {
+                    findColumnRun(x, rowY, occupancy, runBottom, runTop);
+                }
+            }
+            collectRowSegments(area, rowY, left, right, runBottom, runTop, found);
+        }
+    }
+
+    /**
+     * Находит свободный участок столбца, содержащий клетку {@code (x, rowY)}.
+     */
+    private void findColumnRun(int x, int rowY, CellOccupancy occupancy, int[] runBottom, int[] runTop) {
+        int bottom = rowY;
+        while (bottom > START_POSITION && !occupancy.isOccupied(x, bottom - 1)) {
+            bottom--;
+        }
+        int top = rowY + 1;
+        while (top < height && !occupancy.isOccupied(x, top)) {
+            top++;
+        }
+        runBottom[x] = bottom;
+        runTop[x] = top;
+    }
+
+    /**
+     * Перебирает отрезки {@code [start, end)} пустого участка строки, задевающие область, и сохраняет
+     * прямоугольники, которые нельзя расширить ни влево, ни вправо без уменьшения высоты.
+     */
+    private void collectRowSegments(GridRectangle area, int rowY, int left, int right,
+                                    int[] runBottom, int[] runTop, Set<GridRectangle> found) {
+        int areaRight = area.x() + area.width();
+        for (int start = left; start < areaRight; start++) {
+            int bottom = START_POSITION;
+            int top = height;
+            for (int end = start + 1; end <= right; end++) {
+                bottom = Math.max(bottom, runBottom[end - 1]);
+                top = Math.min(top, runTop[end - 1]);
+                if (end > area.x()
+                        && blocksExtension(start - 1, left, right, bottom, top, runBottom, runTop)
+                        && blocksExtension(end, left, right, bottom, top, runBottom, runTop)) {
+                    found.add(new GridRectangle(start, bottom, end - start, top - bottom));
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что прямоугольник высоты {@code [bottom, top)} нельзя расширить на столбец {@code x}:
+     * столбец лежит вне пустого участка строки или его свободный участок не покрывает эту высоту.
+     */
+    private static boolean blocksExtension(int x, int left, int right, int bottom, int top,
+                                           int[] runBottom, int[] runTop) {
+        return x < left || x >= right || runBottom[x] > bottom || runTop[x] < top;
+    }
+
+    private static boolean isContainedInAny(GridRectangle rectangle, Set<GridRectangle> others) {
+        for (GridRectangle other : others) {
+            if (!other.equals(rectangle) && other.contains(rectangle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Пересчитывает таблицу наибольших высот по ширинам и переводит индекс в переполненное состояние,
+     * если прямоугольников больше {@value #MAX_RECTANGLES}.
+     */
+    private void updateHeightTable() {
+        Arrays.fill(maxHeightForWidth, 0);
+        for (GridRectangle free : rectangles) {
+            maxHeightForWidth[free.width()] = Math.max(maxHeightForWidth[free.width()], free.height());
+        }
+        for (int w = width - 1; w >= START_POSITION; w--) {
+            maxHeightForWidth[w] = Math.max(maxHeightForWidth[w], maxHeightForWidth[w + 1]);
+        }
+        if (rectangles.size() > MAX_RECTANGLES) {
+            rectangles.clear();
+            saturated = true;
+        }
+    }
+
+    /**
+     * Источник сведений о занятости клеток грузовика.
+     */
+    @FunctionalInterface
+    public interface CellOccupancy {
+
+        boolean isOccupied(int x, int y);
+    }
+}
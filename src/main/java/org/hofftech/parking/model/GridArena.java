@@ -0,0 +1,145 @@
+package org.hofftech.parking.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Область памяти вне кучи для плиток сеток грузовиков одной погрузки.
+ * <p>
+ * Открытая область привязывается к текущему потоку, и {@link CellGrid}, созданная в этом потоке,
+ * выделяет плитки из блоков области, а не в куче. Снимок грузовика использует область исходной сетки.
+ * Освобождённые плитки переиспользуются внутри области, а при закрытии все блоки возвращаются в
+ * {@link GridMemoryPool}. Грузовики области нельзя использовать после её закрытия.
+ * </p>
+ * <p>
+ * Задачи, создающие грузовики в других потоках, оборачиваются {@link #inCurrentArena(Callable)},
+ * иначе их сетки будут размещены в куче.
+ * </p>
+ */
+public class GridArena implements AutoCloseable {
+    private static final ThreadLocal<GridArena> CURRENT = new ThreadLocal<>();
+    private static final int BYTES_PER_CELL = Character.BYTES;
+
+    private final GridMemoryPool pool;
+    private final GridArena previous;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final Map<Integer, Deque<CharBuffer>> freeTiles = new HashMap<>();
+    private ByteBuffer currentChunk;
+    private volatile boolean closed;
+
+    GridArena(GridMemoryPool pool) {
+        this.pool = pool;
+        this.previous = CURRENT.get();
+        CURRENT.set(this);
+    }
+
+    /**
+     * @return область, открытая в текущем потоке, или {@code null}, если сетки размещаются в куче
+     */
+    static GridArena current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Привязывает к задаче область, открытую в текущем потоке: на время выполнения задачи в любом потоке
+     * сетки размещаются в этой области. Если область не открыта, задача возвращается без изменений.
+     *
+     * @param task задача, создающая грузовики
+     * @return задача, выполняющаяся в области текущего потока
+     */
+    public static <T> Callable<T> inCurrentArena(Callable<T> task) {
+        GridArena arena = CURRENT.get();
+        if (arena == null) {
+            return task;
+        }
+        return () -> {
+            GridArena previous = CURRENT.get();
+            CURRENT.set(arena);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Выделяет плитку указанного размера, повторно используя освобождённые плитки того же размера.
+     *
+     * @param cells количество клеток плитки
+     * @return буфер плитки; содержимое не определено
+     */
+    synchronized CharBuffer allocateTile(int cells) {
+        ensureOpen();
+        Deque<CharBuffer> free = freeTiles.get(cells);
+        if (free != null && !free.isEmpty()) {
+            return free.pop();
+        }
+        int bytes = cells * BYTES_PER_CELL;
+        if (currentChunk == null || currentChunk.remaining() < bytes) {
+            currentChunk = pool.acquire();
+            chunks.add(currentChunk);
+        }
+        CharBuffer tile = currentChunk.slice(currentChunk.position(), bytes)
+                .order(ByteOrder.nativeOrder())
+                .asCharBuffer();
+        currentChunk.position(currentChunk.position() + bytes);
+        return tile;
+    }
+
+    /**
+     * Возвращает плитку области для повторного использования.
+     *
+     * @param tile плитка, на которую больше нет ссылок
+     */
+    synchronized void releaseTile(CharBuffer tile) {
+        if (!closed) {
+            freeTiles.computeIfAbsent(tile.capacity(), cells -> new ArrayDeque<>()).push(tile);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException если область закрыта
+     */
+    void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Область памяти сеток закрыта, грузовик больше недоступен.");
+        }
+    }
+
+    /**
+     * Закрывает область, возвращает её блоки в пул и восстанавливает предыдущую область потока.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pool.release(chunks);
+            chunks.clear();
+            freeTiles.clear();
+            currentChunk = null;
+        }
+        if (CURRENT.get() == this) {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
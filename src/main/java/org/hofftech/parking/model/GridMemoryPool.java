@@ -0,0 +1,63 @@
+package org.hofftech.parking.model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Пул блоков памяти вне кучи для сеток грузовиков.
+ * <p>
+ * Блоки выделяются как прямые буферы и раздаются областям {@link GridArena}. Закрытая область
+ * возвращает свои блоки в пул, и следующая погрузка использует их повторно, поэтому в пределах лимита
+ * пула память вне кучи переиспользуется без участия сборщика мусора. Блоки сверх лимита не сохраняются:
+ * их память освобождается только после того, как сборщик мусора соберёт буфер.
+ * </p>
+ * <p>
+ * Пул потокобезопасен и может обслуживать параллельные погрузки.
+ * </p>
+ */
+public class GridMemoryPool {
+    static final int CHUNK_BYTES = 1 << 20;
+
+    private final int maxPooledChunks;
+    private final Deque<ByteBuffer> chunks = new ArrayDeque<>();
+
+    /**
+     * @param maxPooledBytes максимальный объём блоков, сохраняемых в пуле между погрузками
+     */
+    public GridMemoryPool(long maxPooledBytes) {
+        this.maxPooledChunks = (int) Math.min(Integer.MAX_VALUE, maxPooledBytes / CHUNK_BYTES);
+    }
+
+    /**
+     * Открывает область для текущего потока: сетки грузовиков, созданных в этом потоке до закрытия области,
+     * размещаются в её памяти.
+     *
+     * @return открытая область, которую нужно закрыть в том же потоке
+     */
+    public GridArena openArena() {
+        return new GridArena(this);
+    }
+
+    /**
+     * @return количество блоков, ожидающих повторного использования
+     */
+    public synchronized int getPooledChunks() {
+        return chunks.size();
+    }
+
+    synchronized ByteBuffer acquire() {
+        ByteBuffer chunk = chunks.poll();
+        return chunk != null ? chunk : ByteBuffer.allocateDirect(CHUNK_BYTES);
+    }
+
+    synchronized void release(List<ByteBuffer> released) {
+        for (ByteBuffer chunk : released) {
+            if (chunks.size() >= maxPooledChunks) {
+                return;
+            }
+            chunks.push(chunk.clear());
+        }
+    }
+}
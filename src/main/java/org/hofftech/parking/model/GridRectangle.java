@@ -0,0 +1,35 @@
+package org.hofftech.parking.model;
+
+/**
+ * Прямоугольник на сетке грузовика или формы посылки.
+ * Координаты задают левый нижний угол, размеры измеряются в клетках.
+ *
+ * @param x      координата X левого нижнего угла
+ * @param y      координата Y левого нижнего угла
+ * @param width  ширина прямоугольника
+ * @param height высота прямоугольника
+ */
+public record GridRectangle(int x, int y, int width, int height) {
+
+    /**
+     * Проверяет, пересекается ли прямоугольник с другим прямоугольником хотя бы одной клеткой.
+     *
+     * @param other другой прямоугольник
+     * @return {@code true}, если прямоугольники пересекаются
+     */
+    public boolean intersects(GridRectangle other) {
+        return x < other.x + other.width && other.x < x + width
+                && y < other.y + other.height && other.y < y + height;
+    }
+
+    /**
+     * Проверяет, содержит ли прямоугольник другой прямоугольник целиком.
+     *
+     * @param other другой прямоугольник
+     * @return {@code true}, если {@code other} полностью лежит внутри текущего прямоугольника
+     */
+    public boolean contains(GridRectangle other) {
+        return other.x >= x && other.y >= y
+                && other.x + other.width <= x + width && other.y + other.height <= y + height;
+    }
+}
@@ -0,0 +1,39 @@
+package org.hofftech.parking.model;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Запрос на погрузку посылок в грузовики.
+ * Содержит источник посылок, размеры грузовиков, флаги алгоритма упаковки и пользователя.
+ *
+ * @param parcelsFile          путь к файлу с посылками или {@code null}
+ * @param parcelsText          текстовое представление посылок или {@code null}
+ * @param trucksFromArgs       список размеров грузовиков в формате {@code ширинаxвысота}
+ * @param isEasyAlgorithm      флаг использования упрощенного алгоритма
+ * @param isSaveToFile         флаг сохранения результатов в файл
+ * @param isEvenAlgorithm      флаг использования равномерного алгоритма
+ * @param isBestFitAlgorithm   флаг использования алгоритма наилучшего размещения
+ * @param isOptimalAlgorithm   флаг использования оптимизирующего алгоритма ветвей и границ
+ * @param isPortfolioAlgorithm флаг использования портфельного алгоритма
+ * @param isImprovement        флаг улучшения результата упаковки локальным поиском
+ * @param isRotation           флаг, разрешающий поворачивать и отражать посылки
+ * @param optimizationBudget   время поиска для оптимизирующего и портфельного алгоритмов и для улучшения
+ *                             или {@code null} для значения по умолчанию
+ * @param user                 идентификатор пользователя
+ */
+public record LoadRequest(Path parcelsFile,
+                          String parcelsText,
+                          List<String> trucksFromArgs,
+                          boolean isEasyAlgorithm,
+                          boolean isSaveToFile,
+                          boolean isEvenAlgorithm,
+                          boolean isBestFitAlgorithm,
+                          boolean isOptimalAlgorithm,
+                          boolean isPortfolioAlgorithm,
+                          boolean isImprovement,
+                          boolean isRotation,
+                          Duration optimizationBudget,
+                          String user) {
+}
@@ -0,0 +1,20 @@
+package org.hofftech.parking.model;
+
+/**
+ * Результат обработки одного запроса на погрузку в пакетном режиме.
+ *
+ * @param request исходный запрос
+ * @param output  результат погрузки или {@code null}, если погрузка не удалась
+ * @param error   сообщение об ошибке или {@code null}, если погрузка прошла успешно
+ */
+public record LoadResult(LoadRequest request, String output, String error) {
+
+    /**
+     * Проверяет, успешно ли обработан запрос.
+     *
+     * @return {@code true}, если погрузка прошла без ошибок
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
@@ -0,0 +1,79 @@
+package org.hofftech.parking.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * План погрузки, полученный пробной упаковкой без изменения состояния системы.
+ * <p>
+ * План содержит только значения: размеры грузовиков, позиции и формы посылок.
+ * Он не ссылается на грузовики и посылки, использованные при упаковке.
+ * </p>
+ *
+ * @param truckCount  количество занятых грузовиков
+ * @param utilization доля занятых клеток в занятых грузовиках, от {@code 0} до {@code 1}
+ * @param trucks      все грузовики плана, включая пустые, в порядке упаковки
+ */
+public record PackingPlan(int truckCount, double utilization, List<TruckPlan> trucks) {
+
+    /**
+     * Составляет план по упакованным грузовикам.
+     *
+     * @param packedTrucks грузовики с размещёнными посылками
+     * @return план погрузки
+     */
+    public static PackingPlan of(List<Truck> packedTrucks) {
+        List<TruckPlan> trucks = new ArrayList<>(packedTrucks.size());
+        int truckCount = 0;
+        long occupiedCells = 0;
+        long usedArea = 0;
+        for (int i = 0; i < packedTrucks.size(); i++) {
+            Truck truck = packedTrucks.get(i);
+            TruckPlan truckPlan = TruckPlan.of(i, truck);
+            trucks.add(truckPlan);
+            if (!truckPlan.parcels().isEmpty()) {
+                truckCount++;
+                occupiedCells += truckPlan.occupiedCells();
+                usedArea += (long) truck.getWidth() * truck.getHeight();
+            }
+        }
+        double utilization = usedArea == 0 ? 0 : (double) occupiedCells / usedArea;
+        return new PackingPlan(truckCount, utilization, List.copyOf(trucks));
+    }
+
+    /**
+     * План одного грузовика.
+     *
+     * @param width         ширина грузовика
+     * @param height        высота грузовика
+     * @param occupiedCells количество занятых клеток
+     * @param parcels       посылки в порядке размещения
+     */
+    public record TruckPlan(int width, int height, int occupiedCells, List<PlannedParcel> parcels) {
+
+        private static TruckPlan of(int truckIndex, Truck truck) {
+            List<PlannedParcel> parcels = new ArrayList<>(truck.getPlacements().size());
+            for (ParcelPlacement placement : truck.getPlacements()) {
+                List<String> topDownRows = new ArrayList<>(placement.shape().getRows());
+                Collections.reverse(topDownRows);
+                parcels.add(new PlannedParcel(placement.parcel().getName(), truckIndex, placement.x(), placement.y(),
+                        List.copyOf(topDownRows)));
+            }
+            return new TruckPlan(truck.getWidth(), truck.getHeight(),
+                    truck.getWidth() * truck.getHeight() - truck.getFreeCells(), List.copyOf(parcels));
+        }
+    }
+
+    /**
+     * Посылка в плане погрузки.
+     *
+     * @param name       название посылки
+     * @param truckIndex индекс грузовика в плане
+     * @param x          координата X левой нижней клетки
+     * @param y          координата Y левой нижней клетки
+     * @param shape      строки формы в размещённой ориентации, сверху вниз
+     */
+    public record PlannedParcel(String name, int truckIndex, int x, int y, List<String> shape) {
+    }
+}
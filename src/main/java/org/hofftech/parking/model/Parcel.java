@@ -1,29 +1,51 @@
 package org.hofftech.parking.model;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
  * Класс {@code Parcel} представляет собой посылку с определенными свойствами, такими как название, форма, символ и начальная позиция.
  * Реализует интерфейс {@link Comparable} для сравнения посылок по высоте и ширине.
+ * <p>
+ * При создании посылки и при каждом изменении её формы строится {@link CompiledShape},
+ * который используется при упаковке вместо повторного разбора строк формы.
+ * </p>
  */
 @Getter
 @Setter
 @ToString
-@AllArgsConstructor
 public class Parcel implements Comparable<Parcel> {
     private String name;
     private List<String> shape;
     private char symbol;
     private ParcelStartPosition parcelStartPosition;
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private CompiledShape compiledShape;
     private static final int START_POSITION_HEIGHT = 0;
 
+    public Parcel(String name, List<String> shape, char symbol, ParcelStartPosition parcelStartPosition) {
+        this.name = name;
+        this.symbol = symbol;
+        this.parcelStartPosition = parcelStartPosition;
+        setShape(shape);
+    }
+
+    /**
+     * Устанавливает форму посылки и перекомпилирует её.
+     *
+     * @param shape новая форма посылки
+     */
+    public void setShape(List<String> shape) {
+        this.shape = shape;
+        this.compiledShape = CompiledShape.compile(shape);
+    }
+
     public int getWidth() {
         return shape.getFirst().length();
     }
@@ -47,19 +69,18 @@ public class Parcel implements Comparable<Parcel> {
             String updatedRow = row.replace(symbol, newSymbol);
             updatedShape.add(updatedRow);
         }
-        this.shape = updatedShape;
+        setShape(updatedShape);
         this.symbol = newSymbol;
     }
 
     /**
      * Возвращает форму посылки в обратном порядке строк.
+     * Список берётся из скомпилированной формы и не может быть изменён.
      *
      * @return список строк формы в обратном порядке
      */
     public List<String> getReversedShape() {
-        List<String> reversedShape = new ArrayList<>(this.shape);
-        Collections.reverse(reversedShape);
-        return reversedShape;
+        return compiledShape.getRows();
     }
 
     /**
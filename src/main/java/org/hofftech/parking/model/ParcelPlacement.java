@@ -0,0 +1,26 @@
+package org.hofftech.parking.model;
+
+/**
+ * Неизменяемая запись о размещении посылки в грузовике.
+ * <p>
+ * Посылка используется только как тип: размещение не изменяет её позицию и форму,
+ * поэтому одна и та же посылка из каталога может одновременно входить в разные погрузки
+ * и встречаться в одной погрузке несколько раз.
+ * </p>
+ *
+ * @param parcel посылка из каталога
+ * @param shape  ориентация, в которой посылка размещена
+ * @param x      координата X левой нижней клетки формы
+ * @param y      координата Y левой нижней клетки формы
+ */
+public record ParcelPlacement(Parcel parcel, CompiledShape shape, int x, int y) {
+
+    /**
+     * Возвращает позицию размещения.
+     *
+     * @return позиция левой нижней клетки формы
+     */
+    public ParcelStartPosition position() {
+        return new ParcelStartPosition(x, y);
+    }
+}
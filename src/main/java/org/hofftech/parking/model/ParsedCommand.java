@@ -31,5 +31,14 @@ public class ParsedCommand {
     private final String inFile;
     private final boolean isWithCount;
 
+    private boolean useBestFitAlgorithm;
+    private boolean useOptimalAlgorithm;
+    private boolean usePortfolioAlgorithm;
+    private boolean useImprovement;
+    private boolean useRotation;
+    private boolean dryRun;
+    private boolean topUp;
+    private String budget;
+
     private CommandType commandType;
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package org.hofftech.parking.model;
+
+import java.util.Arrays;
+
+/**
+ * Индекс размещений грузовика: для каждой клетки хранит идентификатор размещения, занимающего её.
+ * <p>
+ * Идентификатор размещения — его номер в списке размещений грузовика. В отличие от символов сетки,
+ * идентификаторы различают посылки с одинаковым символом. Индекс хранится квадратными плитками, которые
+ * выделяются при первой записи, как и {@link CellGrid}; копия индекса разделяет плитки с исходным
+ * и копирует плитку только при первой записи в неё.
+ * </p>
+ */
+public class PlacementIndex {
+    /**
+     * Идентификатор пустой клетки.
+     */
+    public static final int NO_PLACEMENT = -1;
+
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int EMPTY_CELL = 0;
+    private static final int ID_OFFSET = 1;
+
+    private final int width;
+    private final int height;
+    private final int tilesAcross;
+    private final int[][] tiles;
+    private final boolean[] sharedTiles;
+
+    /**
+     * Создаёт пустой индекс указанного размера без выделения плиток.
+     *
+     * @param width  ширина грузовика
+     * @param height высота грузовика
+     */
+    public PlacementIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesAcross = tilesFor(width);
+        int tileCount = tilesAcross * tilesFor(height);
+        this.tiles = new int[tileCount][];
+        this.sharedTiles = new boolean[tileCount];
+    }
+
+    /**
+     * Создаёт копию индекса. Плитки разделяются с исходным индексом и помечаются общими в обоих индексах.
+     *
+     * @param source копируемый индекс
+     */
+    public PlacementIndex(PlacementIndex source) {
+        this.width = source.width;
+        this.height = source.height;
+        this.tilesAcross = source.tilesAcross;
+        this.tiles = source.tiles.clone();
+        this.sharedTiles = new boolean[tiles.length];
+
+        Arrays.fill(sharedTiles, true);
+        Arrays.fill(source.sharedTiles, true);
+    }
+
+    /**
+     * Возвращает идентификатор размещения, занимающего клетку.
+     *
+     * @param x координата X клетки
+     * @param y координата Y клетки
+     * @return идентификатор размещения или {@link #NO_PLACEMENT} для пустой клетки
+     */
+    public int get(int x, int y) {
+        int[] tile = tiles[tileIndex(x, y)];
+        return tile == null ? NO_PLACEMENT : tile[cellOffset(x, y)] - ID_OFFSET;
+    }
+
+    /**
+     * Записывает идентификатор размещения в клетку.
+     *
+     * @param x           координата X клетки
+     * @param y           координата Y клетки
+     * @param placementId идентификатор размещения
+     */
+    public void set(int x, int y, int placementId) {
+        int tileIndex = tileIndex(x, y);
+        int[] tile = tiles[tileIndex];
+        if (tile == null) {
+            tile = new int[tileCapacity(tileIndex)];
+            tiles[tileIndex] = tile;
+            sharedTiles[tileIndex] = false;
+        } else if (sharedTiles[tileIndex]) {
+            tile = tile.clone();
+            tiles[tileIndex] = tile;
+            sharedTiles[tileIndex] = false;
+        }
+        tile[cellOffset(x, y)] = placementId + ID_OFFSET;
+    }
+
+    /**
+     * Очищает индекс для повторного использования: собственные плитки обнуляются и остаются выделенными,
+     * а разделяемые сбрасываются.
+     */
+    public void reset() {
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null && !sharedTiles[i]) {
+                Arrays.fill(tiles[i], EMPTY_CELL);
+            } else {
+                tiles[i] = null;
+            }
+        }
+        Arrays.fill(sharedTiles, false);
+    }
+
+    private int tileCapacity(int tileIndex) {
+        int tileX = (tileIndex % tilesAcross) << TILE_SHIFT;
+        int tileY = (tileIndex / tilesAcross) << TILE_SHIFT;
+        return Math.min(TILE_SIZE, width - tileX) * Math.min(TILE_SIZE, height - tileY);
+    }
+
+    private int tileIndex(int x, int y) {
+        return (y >>> TILE_SHIFT) * tilesAcross + (x >>> TILE_SHIFT);
+    }
+
+    private int cellOffset(int x, int y) {
+        int tileWidth = Math.min(TILE_SIZE, width - (x & ~TILE_MASK));
+        return (y & TILE_MASK) * tileWidth + (x & TILE_MASK);
+    }
+
+    private static int tilesFor(int cells) {
+        return (cells + TILE_MASK) >>> TILE_SHIFT;
+    }
+}
@@ -1,28 +1,108 @@
 package org.hofftech.parking.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 
 /**
  * Класс, представляющий грузовик, используемый для упаковки посылок.
  * Хранит информацию о размерах грузовика, его сетке и списке посылок.
+ * <p>
+ * Грузовик ведёт занятость клеток, символьную сетку для отображения и размещённые посылки,
+ * а также вспомогательные индексы для быстрого поиска позиций. Размещённые посылки хранятся
+ * как записи {@link ParcelPlacement}, поэтому грузовик не изменяет сами посылки.
+ * </p>
  */
 @Getter
 @ToString
 public class Truck {
     private static final int SHAPE_FIRST_INDEX = 0;
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_SIZE = 64;
+    private static final int BIT_INDEX_MASK = WORD_SIZE - 1;
+    private static final int NO_OVERLAP = 0;
+
     private final int width;
     private final int height;
-    private final char[][] grid;
-    private final List<Parcel> parcels;
+
+    /**
+     * Символьная сетка для отображения, читается только через {@link #getCell(int, int)}.
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final CellGrid grid;
+
+    /**
+     * Битовая карта занятости: для каждой строки массив {@code long}, где один бит соответствует одной клетке.
+     * Проверки пересечения и опоры выполняются над целыми словами. Все пустые строки разделяют
+     * {@code emptyRow}, заполненная строка заменяется общим {@code fullRow}, а собственный массив
+     * строка получает при первой записи.
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final long[][] occupancy;
+
+    /**
+     * «Горизонт» — высота самой верхней занятой клетки в каждом столбце.
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final int[] columnHeights;
+
+    /**
+     * Максимальные пустые прямоугольники грузовика, по которым сразу отклоняется посылка,
+     * заведомо не помещающаяся в грузовик.
+     */
+    @ToString.Exclude
+    private FreeSpaceIndex freeSpace;
+
+    /**
+     * Количество свободных клеток в каждой строке.
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final int[] rowFreeCells;
+
+    /**
+     * Признаки строк карты занятости, разделяемых с другим грузовиком или общими массивами строк.
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final boolean[] sharedRows;
+
+    /**
+     * Идентификатор размещения для каждой занятой клетки; идентификатор — номер размещения в списке.
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final PlacementIndex placementIndex;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final long[] emptyRow;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private long[] fullRow;
+    private int freeCells;
+
+    /**
+     * Номер самой нижней строки, в которой ещё есть свободные клетки.
+     */
+    private int lowestOpenRow;
+    @Getter(AccessLevel.NONE)
+    private final List<ParcelPlacement> placements;
 
     /**
      * Конструктор грузовика с указанной шириной и высотой.
-     * Инициализирует сетку пустыми пробелами и создаёт пустой список посылок.
+     * Создаёт пустую сетку без выделения плиток, карту занятости, все строки которой разделяют один
+     * нулевой массив, и пустой список размещений.
      *
      * @param width  ширина грузовика
      * @param height высота грузовика
@@ -30,13 +110,381 @@ public class Truck {
     public Truck(int width, int height) {
         this.width = width;
         this.height = height;
-        this.grid = new char[height][width];
-        this.parcels = new ArrayList<>();
+        this.grid = new CellGrid(width, height);
+        this.placementIndex = new PlacementIndex(width, height);
+        this.occupancy = new long[height][];
+        this.columnHeights = new int[width];
+        this.freeSpace = new FreeSpaceIndex(width, height);
+        this.rowFreeCells = new int[height];
+        this.sharedRows = new boolean[height];
+        this.emptyRow = new long[wordsFor(width)];
+        this.freeCells = width * height;
+        this.lowestOpenRow = SHAPE_FIRST_INDEX;
+        this.placements = new ArrayList<>();
+
+        Arrays.fill(occupancy, emptyRow);
+        Arrays.fill(rowFreeCells, width);
+        Arrays.fill(sharedRows, true);
+    }
+
+    /**
+     * Конструктор снимка: строки карты занятости и плитки сетки разделяются с исходным грузовиком
+     * и помечаются общими в обоих грузовиках.
+     *
+     * @param source исходный грузовик
+     */
+    private Truck(Truck source) {
+        this.width = source.width;
+        this.height = source.height;
+        this.grid = new CellGrid(source.grid);
+        this.placementIndex = new PlacementIndex(source.placementIndex);
+        this.occupancy = source.occupancy.clone();
+        this.columnHeights = source.columnHeights.clone();
+        this.freeSpace = new FreeSpaceIndex(source.freeSpace);
+        this.rowFreeCells = source.rowFreeCells.clone();
+        this.sharedRows = new boolean[height];
+        this.emptyRow = source.emptyRow;
+        this.fullRow = source.fullRow;
+        this.freeCells = source.freeCells;
+        this.lowestOpenRow = source.lowestOpenRow;
+        this.placements = new ArrayList<>(source.placements);
+
+        Arrays.fill(sharedRows, true);
+        Arrays.fill(source.sharedRows, true);
+    }
+
+    /**
+     * Создаёт снимок грузовика с копированием строк при записи.
+     * Изменения снимка не затрагивают исходный грузовик, и наоборот.
+     * Снимок разделяет с исходным грузовиком строки карты занятости и плитки сетки, поэтому пробное
+     * размещение в нём стоит пропорционально числу затронутых строк, а не площади грузовика.
+     *
+     * @return независимый грузовик с тем же содержимым
+     */
+    public Truck snapshot() {
+        return new Truck(this);
+    }
 
-        for (int i = SHAPE_FIRST_INDEX; i < height; i++) {
-            for (int j = SHAPE_FIRST_INDEX; j < width; j++) {
-                grid[i][j] = ' ';
+    /**
+     * Возвращает грузовик в пустое состояние для повторного использования.
+     * <p>
+     * Собственные строки карты занятости и плитки сетки очищаются на месте и остаются выделенными,
+     * поэтому следующая погрузка пишет в них без выделения памяти. Строки и плитки, разделяемые
+     * со снимками, заменяются общими пустыми и не изменяются.
+     * </p>
+     */
+    public void reset() {
+        for (int y = SHAPE_FIRST_INDEX; y < height; y++) {
+            if (sharedRows[y]) {
+                occupancy[y] = emptyRow;
+            } else {
+                Arrays.fill(occupancy[y], NO_OVERLAP);
+            }
+        }
+        grid.reset();
+        placementIndex.reset();
+        Arrays.fill(columnHeights, NO_OVERLAP);
+        Arrays.fill(rowFreeCells, width);
+        freeSpace = new FreeSpaceIndex(width, height);
+        freeCells = width * height;
+        lowestOpenRow = SHAPE_FIRST_INDEX;
+        placements.clear();
+    }
+
+    /**
+     * Проверяет, размещена ли сетка грузовика в куче, а не в области памяти вне кучи.
+     *
+     * @return {@code true}, если грузовик можно хранить после завершения погрузки
+     */
+    public boolean isOnHeap() {
+        return grid.isOnHeap();
+    }
+
+    /**
+     * Возвращает размещения посылок в порядке добавления.
+     *
+     * @return неизменяемое представление списка размещений
+     */
+    public List<ParcelPlacement> getPlacements() {
+        return Collections.unmodifiableList(placements);
+    }
+
+    /**
+     * Возвращает посылки грузовика в порядке размещения.
+     *
+     * @return неизменяемое представление посылок из списка размещений
+     */
+    public List<Parcel> getParcels() {
+        return new AbstractList<>() {
+            @Override
+            public Parcel get(int index) {
+                return placements.get(index).parcel();
+            }
+
+            @Override
+            public int size() {
+                return placements.size();
+            }
+        };
+    }
+
+    /**
+     * Добавляет запись о размещении посылки. Клетки посылки занимаются отдельно.
+     *
+     * @param placement размещение посылки
+     * @return идентификатор размещения
+     */
+    public int addPlacement(ParcelPlacement placement) {
+        placements.add(placement);
+        return placements.size() - 1;
+    }
+
+    /**
+     * Возвращает идентификатор размещения, занимающего клетку.
+     *
+     * @param x координата X клетки
+     * @param y координата Y клетки
+     * @return идентификатор размещения или {@link PlacementIndex#NO_PLACEMENT} для пустой клетки
+     */
+    public int getPlacementId(int x, int y) {
+        return placementIndex.get(x, y);
+    }
+
+    /**
+     * Возвращает клетки грузовика, занятые размещением.
+     *
+     * @param placementId идентификатор размещения
+     * @return клетки размещения снизу вверх и слева направо
+     */
+    public List<ParcelStartPosition> getPlacementCells(int placementId) {
+        ParcelPlacement placement = placements.get(placementId);
+        CompiledShape shape = placement.shape();
+        List<ParcelStartPosition> cells = new ArrayList<>(shape.getFilledCells());
+        for (int y = SHAPE_FIRST_INDEX; y < shape.getHeight(); y++) {
+            for (int x = SHAPE_FIRST_INDEX; x < shape.rowWidth(y); x++) {
+                if (shape.isFilled(x, y)) {
+                    cells.add(new ParcelStartPosition(placement.x() + x, placement.y() + y));
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Возвращает количество слов {@code long}, необходимое для хранения указанного числа бит.
+     *
+     * @param bits количество бит
+     * @return количество слов
+     */
+    public static int wordsFor(int bits) {
+        return (bits + BIT_INDEX_MASK) >>> WORD_SHIFT;
+    }
+
+    /**
+     * Проверяет, занята ли клетка грузовика.
+     *
+     * @param x координата X клетки
+     * @param y координата Y клетки
+     * @return {@code true}, если клетка занята
+     */
+    public boolean isOccupied(int x, int y) {
+        return (occupancy[y][x >>> WORD_SHIFT] & (1L << (x & BIT_INDEX_MASK))) != NO_OVERLAP;
+    }
+
+    /**
+     * Возвращает символ клетки для отображения.
+     *
+     * @param x координата X клетки
+     * @param y координата Y клетки
+     * @return символ посылки или пробел для пустой клетки
+     */
+    public char getCell(int x, int y) {
+        return grid.get(x, y);
+    }
+
+    /**
+     * Занимает клетку грузовика, записывает в сетку символ для отображения, а в индекс — идентификатор размещения.
+     * Строка карты занятости копируется при первой записи, а после заполнения заменяется общей полной строкой.
+     *
+     * @param x           координата X клетки
+     * @param y           координата Y клетки
+     * @param symbol      символ посылки
+     * @param placementId идентификатор размещения, которому принадлежит клетка
+     */
+    public void occupy(int x, int y, char symbol, int placementId) {
+        boolean newlyOccupied = !isOccupied(x, y);
+        if (sharedRows[y]) {
+            occupancy[y] = occupancy[y].clone();
+            sharedRows[y] = false;
+        }
+        occupancy[y][x >>> WORD_SHIFT] |= 1L << (x & BIT_INDEX_MASK);
+        grid.set(x, y, symbol);
+        placementIndex.set(x, y, placementId);
+        if (newlyOccupied) {
+            freeCells--;
+            rowFreeCells[y]--;
+            if (rowFreeCells[y] == NO_OVERLAP) {
+                occupancy[y] = fullRow();
+                sharedRows[y] = true;
+            }
+            while (lowestOpenRow < height && rowFreeCells[lowestOpenRow] == NO_OVERLAP) {
+                lowestOpenRow++;
+            }
+        }
+        if (columnHeights[x] <= y) {
+            columnHeights[x] = y + 1;
+        }
+    }
+
+    /**
+     * Убирает размещения из грузовика, не перестраивая его заново.
+     * <p>
+     * Освобождаются только клетки убранных размещений: карта занятости, сетка, индекс размещений,
+     * счётчики свободных клеток и «горизонт» их столбцов. Оставшиеся размещения получают новые идентификаторы
+     * по своему номеру в списке, и в индексе перезаписываются клетки только тех размещений, чей номер сдвинулся.
+     * Индекс свободного пространства не строится заново: в него возвращаются блоки убранных посылок,
+     * и он пополняется только максимальными пустыми прямоугольниками, задевающими освобождённые клетки.
+     * Опора оставшихся посылок не проверяется.
+     * </p>
+     *
+     * @param placementIds идентификаторы убираемых размещений
+     */
+    public void removePlacements(Set<Integer> placementIds) {
+        List<GridRectangle> released = new ArrayList<>();
+        for (int placementId : placementIds) {
+            ParcelPlacement placement = placements.get(placementId);
+            for (GridRectangle block : placement.shape().getBlocks()) {
+                released.add(new GridRectangle(
+                        placement.x() + block.x(), placement.y() + block.y(), block.width(), block.height()));
+            }
+            for (ParcelStartPosition cell : getPlacementCells(placementId)) {
+                vacate(cell.x(), cell.y());
+            }
+        }
+
+        List<ParcelPlacement> kept = new ArrayList<>(placements.size() - placementIds.size());
+        for (int oldId = SHAPE_FIRST_INDEX; oldId < placements.size(); oldId++) {
+            if (placementIds.contains(oldId)) {
+                continue;
+            }
+            int newId = kept.size();
+            kept.add(placements.get(oldId));
+            if (newId != oldId) {
+                for (ParcelStartPosition cell : getPlacementCells(oldId)) {
+                    placementIndex.set(cell.x(), cell.y(), newId);
+                }
+            }
+        }
+        placements.clear();
+        placements.addAll(kept);
+        freeSpace.release(released, this::isOccupied);
+    }
+
+    /**
+     * Освобождает клетку грузовика. Строка карты занятости копируется при первой записи, а высота столбца
+     * опускается до ближайшей занятой клетки под освобождённой.
+     *
+     * @param x координата X клетки
+     * @param y координата Y клетки
+     */
+    private void vacate(int x, int y) {
+        if (!isOccupied(x, y)) {
+            return;
+        }
+        if (sharedRows[y]) {
+            occupancy[y] = occupancy[y].clone();
+            sharedRows[y] = false;
+        }
+        occupancy[y][x >>> WORD_SHIFT] &= ~(1L << (x & BIT_INDEX_MASK));
+        grid.clear(x, y);
+        placementIndex.set(x, y, PlacementIndex.NO_PLACEMENT);
+        freeCells++;
+        rowFreeCells[y]++;
+        lowestOpenRow = Math.min(lowestOpenRow, y);
+        if (columnHeights[x] == y + 1) {
+            int top = y;
+            while (top > SHAPE_FIRST_INDEX && !isOccupied(x, top - 1)) {
+                top--;
+            }
+            columnHeights[x] = top;
+        }
+    }
+
+    /**
+     * Возвращает общий массив заполненной строки карты занятости, создавая его при первом обращении.
+     */
+    private long[] fullRow() {
+        if (fullRow == null) {
+            long[] row = new long[wordsFor(width)];
+            for (int x = SHAPE_FIRST_INDEX; x < width; x++) {
+                row[x >>> WORD_SHIFT] |= 1L << (x & BIT_INDEX_MASK);
+            }
+            fullRow = row;
+        }
+        return fullRow;
+    }
+
+    /**
+     * Возвращает высоту столбца: количество строк до самой верхней занятой клетки включительно.
+     *
+     * @param x столбец грузовика
+     * @return высота столбца, {@code 0} для пустого столбца
+     */
+    public int getColumnHeight(int x) {
+        return columnHeights[x];
+    }
+
+    /**
+     * Возвращает количество свободных клеток в строке грузовика.
+     *
+     * @param y строка грузовика
+     * @return количество свободных клеток
+     */
+    public int getRowFreeCells(int y) {
+        return rowFreeCells[y];
+    }
+
+    /**
+     * Проверяет, пересекается ли битовая маска строки посылки с занятыми клетками строки грузовика.
+     *
+     * @param y       строка грузовика
+     * @param startX  смещение маски по оси X
+     * @param rowMask битовая маска строки посылки, бит {@code i} соответствует столбцу {@code i} посылки
+     * @return {@code true}, если хотя бы одна клетка маски уже занята
+     */
+    public boolean intersects(int y, int startX, long[] rowMask) {
+        long[] row = occupancy[y];
+        int wordIndex = startX >>> WORD_SHIFT;
+        int bitOffset = startX & BIT_INDEX_MASK;
+        for (int i = 0; i < rowMask.length; i++) {
+            if ((row[wordIndex + i] & (rowMask[i] << bitOffset)) != NO_OVERLAP
+                    || (bitOffset != NO_OVERLAP && wordIndex + i + 1 < row.length
+                    && (row[wordIndex + i + 1] & (rowMask[i] >>> (WORD_SIZE - bitOffset))) != NO_OVERLAP)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Подсчитывает количество занятых клеток строки грузовика, попадающих под битовую маску.
+     *
+     * @param y       строка грузовика
+     * @param startX  смещение маски по оси X
+     * @param rowMask битовая маска строки посылки, бит {@code i} соответствует столбцу {@code i} посылки
+     * @return количество занятых клеток под маской
+     */
+    public int countOccupied(int y, int startX, long[] rowMask) {
+        long[] row = occupancy[y];
+        int wordIndex = startX >>> WORD_SHIFT;
+        int bitOffset = startX & BIT_INDEX_MASK;
+        int count = 0;
+        for (int i = 0; i < rowMask.length; i++) {
+            count += Long.bitCount(row[wordIndex + i] & (rowMask[i] << bitOffset));
+            if (bitOffset != NO_OVERLAP && wordIndex + i + 1 < row.length) {
+                count += Long.bitCount(row[wordIndex + i + 1] & (rowMask[i] >>> (WORD_SIZE - bitOffset)));
             }
         }
+        return count;
     }
 }
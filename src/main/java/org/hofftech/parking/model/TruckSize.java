@@ -0,0 +1,58 @@
+package org.hofftech.parking.model;
+
+/**
+ * Размер грузовика, заданный строкой в формате {@code ширинаxвысота}, например {@code 10x10}.
+ *
+ * @param width  ширина грузовика
+ * @param height высота грузовика
+ */
+public record TruckSize(int width, int height) {
+    private static final String SIZE_SPLITTER = "x";
+    private static final int WIDTH_INDEX = 0;
+    private static final int HEIGHT_INDEX = 1;
+    private static final int EXPECTED_SIZE_PARTS = 2;
+
+    private static final String INVALID_FORMAT_MESSAGE = "Размер грузовика должен быть в формате ширинаxвысота, например 10x10.";
+    private static final String NON_NUMERIC_MESSAGE = "Размеры грузовика должны быть числами.";
+    private static final String NON_POSITIVE_MESSAGE = "Размеры грузовика должны быть положительными числами.";
+
+    /**
+     * Разбирает размер грузовика из строки.
+     *
+     * @param size размер в формате {@code ширинаxвысота}
+     * @return размер грузовика
+     * @throws IllegalArgumentException если строка не в формате {@code ширинаxвысота} или размеры не положительны
+     * @throws NumberFormatException    если размеры не являются числами
+     */
+    public static TruckSize parse(String size) {
+        String[] parts = size == null ? new String[0] : size.split(SIZE_SPLITTER);
+        if (parts.length != EXPECTED_SIZE_PARTS) {
+            throw new IllegalArgumentException(INVALID_FORMAT_MESSAGE);
+        }
+        int width = parseDimension(parts[WIDTH_INDEX]);
+        int height = parseDimension(parts[HEIGHT_INDEX]);
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(NON_POSITIVE_MESSAGE);
+        }
+        return new TruckSize(width, height);
+    }
+
+    /**
+     * Возвращает размер в формате {@code ширинаxвысота}.
+     *
+     * @param width  ширина грузовика
+     * @param height высота грузовика
+     * @return строковое представление размера
+     */
+    public static String format(int width, int height) {
+        return width + SIZE_SPLITTER + height;
+    }
+
+    private static int parseDimension(String dimension) {
+        try {
+            return Integer.parseInt(dimension.trim());
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException(NON_NUMERIC_MESSAGE);
+        }
+    }
+}
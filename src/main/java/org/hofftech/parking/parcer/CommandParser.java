@@ -20,6 +20,14 @@ public class CommandParser {
     private static final String SAVE = "save";
     private static final String EASY = "easy";
     private static final String EVEN = "even";
+    private static final String BEST_FIT = "bestFit";
+    private static final String OPTIMAL = "optimal";
+    private static final String PORTFOLIO = "portfolio";
+    private static final String IMPROVE = "improve";
+    private static final String ROTATE = "rotate";
+    private static final String DRY_RUN = "dryRun";
+    private static final String TOP_UP = "topUp";
+    private static final String BUDGET = "budget";
     private static final String WITH_COUNT = "withCount";
     private static final String PARCELS_TEXT = "parcelsText";
     private static final String PARCELS_FILE = "parcelsFile";
@@ -182,5 +190,13 @@ public class CommandParser {
         parsedCommand.setOldName(parameters.get(OLD_NAME));
         parsedCommand.setForm(parameters.get(FORM));
         parsedCommand.setSymbol(parameters.get(SYMBOL));
+        parsedCommand.setUseBestFitAlgorithm(parameters.containsKey(BEST_FIT));
+        parsedCommand.setUseOptimalAlgorithm(parameters.containsKey(OPTIMAL));
+        parsedCommand.setUsePortfolioAlgorithm(parameters.containsKey(PORTFOLIO));
+        parsedCommand.setUseImprovement(parameters.containsKey(IMPROVE));
+        parsedCommand.setUseRotation(parameters.containsKey(ROTATE));
+        parsedCommand.setDryRun(parameters.containsKey(DRY_RUN));
+        parsedCommand.setTopUp(parameters.containsKey(TOP_UP));
+        parsedCommand.setBudget(parameters.get(BUDGET));
     }
 }
@@ -11,6 +11,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 /**
@@ -24,6 +25,16 @@ public class ParcelRepository {
     private static final int START_POSITION_Y = 0;
 
     private final Map<String, Parcel> parcels = new HashMap<>();
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Регистрирует слушатель, который вызывается после изменения или удаления посылки.
+     *
+     * @param listener слушатель изменений каталога
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
 
     /**
      * Добавляет новую посылку в репозиторий.
@@ -65,6 +76,7 @@ public class ParcelRepository {
             throw new ParcelNotFoundException("Посылка не найдена: " + name);
         }
         parcels.put(name, updatedParcel);
+        notifyChanged();
     }
 
     /**
@@ -78,6 +90,7 @@ public class ParcelRepository {
             throw new ParcelNotFoundException("Посылка не найдена: " + name);
         }
         parcels.remove(name);
+        notifyChanged();
     }
 
     /**
@@ -91,6 +104,10 @@ public class ParcelRepository {
                 .toList();
     }
 
+    private void notifyChanged() {
+        changeListeners.forEach(Runnable::run);
+    }
+
     /**
      * Загружает посылки по умолчанию в репозиторий.
      * Создает и добавляет посылки на основе типов из {@link DefaultParcelType}.
@@ -0,0 +1,239 @@
+package org.hofftech.parking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
+import org.hofftech.parking.model.Truck;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Поиск размещения всех посылок в заданном наборе грузовиков методом ветвей и границ.
+ * <p>
+ * Посылки перебираются в заданном порядке, и для каждой посылки ветвями поиска служат грузовики,
+ * в которые она помещается; позиция внутри грузовика выбирается так же, как при жадной упаковке.
+ * Поэтому размещение полностью определяется назначением «посылка — грузовик».
+ * </p>
+ * <p>
+ * Для каждой глубины хранится состояние грузовиков; посылка размещается в снимке {@link Truck#snapshot()}
+ * выбранного грузовика, а остальные грузовики переходят в новое состояние без копирования.
+ * При возврате достаточно взять состояние предыдущей глубины, повторное размещение не требуется.
+ * Пустые грузовики берутся из {@link TruckPool}, если он задан, а грузовики отброшенных состояний
+ * возвращаются в пул.
+ * </p>
+ * <p>
+ * Ветвь отсекается, если оставшимся посылкам не хватает свободной площади грузовиков, в которые ещё может
+ * поместиться самая маленькая из них. Пустые грузовики одинакового размера взаимозаменяемы, поэтому
+ * из них пробуется только первый. Поиск прекращается по истечении отведённого времени.
+ * </p>
+ */
+@Slf4j
+final class BranchAndBoundPacker {
+    private static final int NOT_ASSIGNED = -1;
+
+    private final ParcelService parcelService;
+    private final TruckPool truckPool;
+    private final long deadlineNanos;
+    private boolean timedOut;
+    private long visitedNodes;
+
+    /**
+     * @param parcelService сервис размещения посылок в грузовике
+     * @param truckPool     пул грузовиков или {@code null}, если грузовики всегда создаются заново
+     * @param deadlineNanos момент {@link System#nanoTime()}, после которого поиск прекращается
+     */
+    BranchAndBoundPacker(ParcelService parcelService, TruckPool truckPool, long deadlineNanos) {
+        this.parcelService = parcelService;
+        this.truckPool = truckPool;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Проверяет, был ли последний поиск прерван по времени.
+     *
+     * @return {@code true}, если время вышло до завершения поиска
+     */
+    boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Ищет назначение всех посылок в грузовики указанных размеров.
+     *
+     * @param parcels посылки в порядке размещения
+     * @param trucks  пустые грузовики, задающие размеры; сами грузовики не изменяются
+     * @return индекс грузовика для каждой посылки или пустой {@link Optional}, если размещение не найдено
+     *         либо время вышло
+     */
+    Optional<int[]> search(List<Parcel> parcels, List<Truck> trucks) {
+        int parcelCount = parcels.size();
+        int[] assignment = new int[parcelCount];
+        int[] nextChoice = new int[parcelCount + 1];
+        long[] remainingArea = new long[parcelCount + 1];
+        int[] smallestRemaining = new int[parcelCount + 1];
+        smallestRemaining[parcelCount] = Integer.MAX_VALUE;
+        for (int i = parcelCount - 1; i >= 0; i--) {
+            int filledCells = parcels.get(i).getCompiledShape().getFilledCells();
+            remainingArea[i] = remainingArea[i + 1] + filledCells;
+            smallestRemaining[i] = Math.min(smallestRemaining[i + 1], filledCells);
+        }
+
+        timedOut = false;
+        visitedNodes = 0;
+        List<List<Truck>> states = new ArrayList<>(parcelCount + 1);
+        states.add(emptyCopies(trucks));
+        int depth = 0;
+
+        while (depth >= 0) {
+            if (depth == parcelCount) {
+                log.debug("Размещение в {} грузовиках найдено за {} узлов.", trucks.size(), visitedNodes);
+                releaseStates(states, assignment);
+                return Optional.of(assignment);
+            }
+            if (System.nanoTime() > deadlineNanos) {
+                timedOut = true;
+                releaseStates(states, assignment);
+                return Optional.empty();
+            }
+            visitedNodes++;
+
+            List<Truck> next = tryNextBranch(parcels, states.get(depth), depth, assignment, nextChoice,
+                    remainingArea, smallestRemaining);
+            if (next != null) {
+                depth++;
+                nextChoice[depth] = 0;
+                states.add(next);
+            } else {
+                assignment[depth] = NOT_ASSIGNED;
+                releaseState(states.removeLast(), depth, assignment);
+                depth--;
+            }
+        }
+        log.debug("Размещение в {} грузовиках невозможно, проверено {} узлов.", trucks.size(), visitedNodes);
+        return Optional.empty();
+    }
+
+    /**
+     * Размещает посылки в новых пустых грузовиках по найденному назначению.
+     *
+     * @param parcels    посылки в порядке размещения
+     * @param trucks     грузовики, в которые размещаются посылки
+     * @param assignment индекс грузовика для каждой посылки
+     */
+    void apply(List<Parcel> parcels, List<Truck> trucks, int[] assignment) {
+        for (int i = 0; i < parcels.size(); i++) {
+            place(trucks.get(assignment[i]), parcels.get(i));
+        }
+    }
+
+    /**
+     * Размещает посылку на глубине {@code depth} в снимке следующего ещё не опробованного грузовика.
+     *
+     * @param state состояние грузовиков на этой глубине; не изменяется
+     * @return состояние грузовиков после размещения посылки или {@code null}, если все ветви
+     *         опробованы или отсечены по площади
+     */
+    private List<Truck> tryNextBranch(List<Parcel> parcels, List<Truck> state, int depth, int[] assignment,
+                                      int[] nextChoice, long[] remainingArea, int[] smallestRemaining) {
+        Parcel parcel = parcels.get(depth);
+        int filledCells = parcel.getCompiledShape().getFilledCells();
+
+        while (nextChoice[depth] < state.size()) {
+            int truckIndex = nextChoice[depth]++;
+            Truck truck = state.get(truckIndex);
+            if (truck.getFreeCells() < filledCells || isSymmetricEmptyTruck(state, truckIndex)) {
+                continue;
+            }
+            Optional<ParcelPlacement> placement = parcelService.findPosition(truck, parcel);
+            if (placement.isEmpty()) {
+                continue;
+            }
+            ParcelPlacement found = placement.get();
+            Truck trial = truck.snapshot();
+            parcelService.placeParcel(trial, parcel, found.shape(), found.x(), found.y());
+            List<Truck> next = new ArrayList<>(state);
+            next.set(truckIndex, trial);
+            assignment[depth] = truckIndex;
+            if (usableFreeCells(next, smallestRemaining[depth + 1]) >= remainingArea[depth + 1]) {
+                return next;
+            }
+            release(List.of(trial));
+        }
+        return null;
+    }
+
+    /**
+     * Проверяет, что перед пустым грузовиком стоит пустой грузовик того же размера,
+     * который уже был опробован на этой глубине.
+     */
+    private boolean isSymmetricEmptyTruck(List<Truck> state, int truckIndex) {
+        Truck truck = state.get(truckIndex);
+        if (!truck.getParcels().isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < truckIndex; i++) {
+            Truck previous = state.get(i);
+            if (previous.getParcels().isEmpty()
+                    && previous.getWidth() == truck.getWidth() && previous.getHeight() == truck.getHeight()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Считает свободные клетки грузовиков, в которых свободного места не меньше самой маленькой оставшейся посылки.
+     */
+    private long usableFreeCells(List<Truck> state, int smallestRemaining) {
+        long usable = 0;
+        for (Truck truck : state) {
+            if (truck.getFreeCells() >= smallestRemaining) {
+                usable += truck.getFreeCells();
+            }
+        }
+        return usable;
+    }
+
+    private void place(Truck truck, Parcel parcel) {
+        ParcelPlacement found = parcelService.findPosition(truck, parcel)
+                .orElseThrow(() -> new IllegalStateException("Не удалось повторить размещение посылки " + parcel.getName()));
+        parcelService.placeParcel(truck, parcel, found.shape(), found.x(), found.y());
+    }
+
+    private List<Truck> emptyCopies(List<Truck> trucks) {
+        List<Truck> copies = new ArrayList<>(trucks.size());
+        for (Truck truck : trucks) {
+            copies.add(truckPool == null
+                    ? new Truck(truck.getWidth(), truck.getHeight())
+                    : truckPool.acquire(truck.getWidth(), truck.getHeight()));
+        }
+        return copies;
+    }
+
+    /**
+     * Возвращает в пул грузовики всех оставшихся состояний, начиная с самой глубокой.
+     */
+    private void releaseStates(List<List<Truck>> states, int[] assignment) {
+        for (int depth = states.size() - 1; depth >= 0; depth--) {
+            releaseState(states.get(depth), depth, assignment);
+        }
+        states.clear();
+    }
+
+    /**
+     * Возвращает в пул грузовики, которые появились в состоянии глубины {@code depth}: на нулевой глубине —
+     * все пустые грузовики, на остальных — снимок, в котором размещена посылка предыдущей глубины.
+     */
+    private void releaseState(List<Truck> state, int depth, int[] assignment) {
+        release(depth == 0 ? state : List.of(state.get(assignment[depth - 1])));
+    }
+
+    private void release(Collection<Truck> trucks) {
+        if (truckPool != null) {
+            truckPool.releaseAll(trucks);
+        }
+    }
+}
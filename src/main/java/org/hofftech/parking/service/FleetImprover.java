@@ -0,0 +1,362 @@
+package org.hofftech.parking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
+import org.hofftech.parking.model.Truck;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Улучшение уже упакованного парка локальным поиском с имитацией отжига.
+ * <p>
+ * На каждом шаге сначала делается попытка опустошить наименее заполненный грузовик, переложив его посылки
+ * в остальные грузовики. Если это не удаётся, выполняется случайный перенос посылки в другой грузовик
+ * или обмен посылками между двумя грузовиками; затронутые грузовики перепаковываются через {@link ParcelService}.
+ * Изменение принимается, если оно увеличивает сумму квадратов занятых клеток грузовиков, то есть
+ * концентрирует груз в меньшем числе грузовиков, а ухудшение принимается с вероятностью, убывающей
+ * вместе с «температурой» к концу отведённого времени.
+ * </p>
+ * <p>
+ * Возвращается лучшее из встреченных состояний: с наименьшим числом занятых грузовиков, а при равенстве —
+ * с наибольшей суммой квадратов, поэтому результат не хуже исходного парка. Поиск заканчивается по истечении
+ * времени или после {@value #MAX_MOVES_WITHOUT_IMPROVEMENT} шагов подряд, не улучшивших лучшее состояние,
+ * а парк, в котором занято меньше двух грузовиков, возвращается сразу.
+ * </p>
+ * <p>
+ * Позиции посылок хранятся в размещениях самих грузовиков, а грузовики состояния не изменяются на месте,
+ * поэтому принятые при поиске грузовики возвращаются как есть, без повторного размещения.
+ * </p>
+ * <p>
+ * Новые грузовики берутся из {@link TruckPool}, если он задан. Переданные грузовики переходят во владение поиска:
+ * отклонённые перепаковки и грузовики, на которые больше не ссылаются ни текущее, ни лучшее состояние,
+ * возвращаются в пул.
+ * </p>
+ */
+@Slf4j
+final class FleetImprover {
+    private static final long RANDOM_SEED = 42L;
+    private static final double SWAP_PROBABILITY = 0.5;
+    private static final double MIN_TEMPERATURE = 1e-9;
+    private static final int MIN_TRUCKS_TO_IMPROVE = 2;
+    private static final int NOT_FOUND_INDEX = -1;
+
+    /**
+     * Количество шагов подряд без улучшения лучшего состояния, после которого поиск прекращается.
+     */
+    static final int MAX_MOVES_WITHOUT_IMPROVEMENT = 1000;
+
+    private final ParcelService parcelService;
+    private final TruckPool truckPool;
+    private final long startNanos;
+    private final long deadlineNanos;
+    private final Random random = new Random(RANDOM_SEED);
+
+    /**
+     * Грузовики, вытесненные из текущего или лучшего состояния и ещё не возвращённые в пул.
+     */
+    private final Set<Truck> dropped = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Количество шагов последнего поиска.
+     */
+    private long iterations;
+
+    /**
+     * @param parcelService сервис размещения посылок в грузовике
+     * @param truckPool     пул грузовиков или {@code null}, если грузовики всегда создаются заново
+     * @param startNanos    момент {@link System#nanoTime()} начала поиска
+     * @param deadlineNanos момент {@link System#nanoTime()}, после которого поиск прекращается
+     */
+    FleetImprover(ParcelService parcelService, TruckPool truckPool, long startNanos, long deadlineNanos) {
+        this.parcelService = parcelService;
+        this.truckPool = truckPool;
+        this.startNanos = startNanos;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Улучшает распределение посылок по грузовикам.
+     *
+     * @param trucks упакованные грузовики; грузовики, не вошедшие в результат, возвращаются в пул
+     * @return грузовики того же размера и в том же порядке; опустошённые грузовики остаются пустыми
+     */
+    List<Truck> improve(List<Truck> trucks) {
+        List<Truck> state = new ArrayList<>(trucks);
+        iterations = 0;
+        if (countLoaded(state) < MIN_TRUCKS_TO_IMPROVE) {
+            return state;
+        }
+        double initialTemperature = initialTemperature(state);
+        List<Truck> best = new ArrayList<>(state);
+        boolean changed = true;
+        int emptied = 0;
+        int movesWithoutImprovement = 0;
+
+        while (System.nanoTime() < deadlineNanos && movesWithoutImprovement < MAX_MOVES_WITHOUT_IMPROVEMENT) {
+            iterations++;
+            if (changed && tryEmptyLeastFilled(state)) {
+                emptied++;
+            } else {
+                changed = tryRandomMove(state, temperature(initialTemperature));
+            }
+            if (isBetter(state, best)) {
+                dropped.addAll(best);
+                best = new ArrayList<>(state);
+                movesWithoutImprovement = 0;
+            } else {
+                movesWithoutImprovement++;
+            }
+            releaseDropped(state, best);
+            if (countLoaded(state) < MIN_TRUCKS_TO_IMPROVE) {
+                break;
+            }
+        }
+        dropped.addAll(state);
+        releaseDropped(best, best);
+        log.info("Улучшение парка: {} итераций, опустошено грузовиков: {}.", iterations, emptied);
+        return best;
+    }
+
+    /**
+     * Возвращает количество шагов последнего поиска.
+     *
+     * @return количество выполненных шагов; ноль, если парк возвращён без поиска
+     */
+    long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Сравнивает состояния парка: лучше то, в котором занято меньше грузовиков, а при равенстве —
+     * то, в котором больше сумма квадратов занятых клеток.
+     */
+    private static boolean isBetter(List<Truck> candidate, List<Truck> best) {
+        int candidateLoaded = countLoaded(candidate);
+        int bestLoaded = countLoaded(best);
+        if (candidateLoaded != bestLoaded) {
+            return candidateLoaded < bestLoaded;
+        }
+        return totalScore(candidate) > totalScore(best);
+    }
+
+    private static int countLoaded(List<Truck> state) {
+        int loaded = 0;
+        for (Truck truck : state) {
+            if (!truck.getParcels().isEmpty()) {
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    private static double totalScore(List<Truck> state) {
+        double total = 0;
+        for (Truck truck : state) {
+            total += score(truck);
+        }
+        return total;
+    }
+
+    /**
+     * Пытается переложить все посылки наименее заполненного грузовика в остальные грузовики.
+     *
+     * @return {@code true}, если грузовик удалось опустошить
+     */
+    private boolean tryEmptyLeastFilled(List<Truck> state) {
+        int target = NOT_FOUND_INDEX;
+        for (int i = 0; i < state.size(); i++) {
+            Truck truck = state.get(i);
+            if (!truck.getParcels().isEmpty() && (target == NOT_FOUND_INDEX || occupied(truck) < occupied(state.get(target)))) {
+                target = i;
+            }
+        }
+        if (target == NOT_FOUND_INDEX) {
+            return false;
+        }
+
+        List<Parcel> moved = new ArrayList<>(state.get(target).getParcels());
+        moved.sort(Comparator.naturalOrder());
+        Map<Integer, Truck> trial = new HashMap<>();
+        for (Parcel parcel : moved) {
+            if (!placeInOtherTruck(state, trial, target, parcel)) {
+                release(trial.values());
+                return false;
+            }
+        }
+
+        trial.forEach((index, truck) -> dropped.add(state.set(index, truck)));
+        Truck emptiedTruck = state.get(target);
+        dropped.add(emptiedTruck);
+        state.set(target, newTruck(emptiedTruck.getWidth(), emptiedTruck.getHeight()));
+        log.debug("Грузовик {} опустошён.", target + 1);
+        return true;
+    }
+
+    private boolean placeInOtherTruck(List<Truck> state, Map<Integer, Truck> trial, int target, Parcel parcel) {
+        for (int i = 0; i < state.size(); i++) {
+            if (i == target || state.get(i).getParcels().isEmpty()) {
+                continue;
+            }
+            Truck candidate = trial.computeIfAbsent(i, index -> state.get(index).snapshot());
+            if (place(candidate, parcel)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Выполняет случайный перенос или обмен посылками между двумя непустыми грузовиками
+     * и принимает его по правилу имитации отжига.
+     *
+     * @return {@code true}, если изменение принято
+     */
+    private boolean tryRandomMove(List<Truck> state, double temperature) {
+        List<Integer> loaded = new ArrayList<>();
+        for (int i = 0; i < state.size(); i++) {
+            if (!state.get(i).getParcels().isEmpty()) {
+                loaded.add(i);
+            }
+        }
+        if (loaded.size() < MIN_TRUCKS_TO_IMPROVE) {
+            return false;
+        }
+        int first = loaded.get(random.nextInt(loaded.size()));
+        int second = loaded.get(random.nextInt(loaded.size()));
+        if (first == second) {
+            return false;
+        }
+
+        Truck source = state.get(first);
+        Truck destination = state.get(second);
+        Parcel parcel = source.getParcels().get(random.nextInt(source.getParcels().size()));
+
+        List<Parcel> sourceParcels = new ArrayList<>(source.getParcels());
+        List<Parcel> destinationParcels = new ArrayList<>(destination.getParcels());
+        sourceParcels.remove(parcel);
+        destinationParcels.add(parcel);
+        if (random.nextDouble() < SWAP_PROBABILITY) {
+            Parcel other = destination.getParcels().get(random.nextInt(destination.getParcels().size()));
+            destinationParcels.remove(other);
+            sourceParcels.add(other);
+        }
+
+        Truck newSource = repack(source, sourceParcels);
+        Truck newDestination = newSource == null ? null : repack(destination, destinationParcels);
+        if (newDestination == null) {
+            if (newSource != null) {
+                release(List.of(newSource));
+            }
+            return false;
+        }
+
+        double delta = score(newSource) + score(newDestination) - score(source) - score(destination);
+        if (delta >= 0 || random.nextDouble() < Math.exp(delta / temperature)) {
+            state.set(first, newSource);
+            state.set(second, newDestination);
+            dropped.add(source);
+            dropped.add(destination);
+            return true;
+        }
+        release(List.of(newSource, newDestination));
+        return false;
+    }
+
+    /**
+     * Упаковывает посылки в новый грузовик того же размера, начиная с крупных.
+     *
+     * @return новый грузовик или {@code null}, если посылки не поместились
+     */
+    private Truck repack(Truck truck, List<Parcel> parcels) {
+        List<Parcel> ordered = new ArrayList<>(parcels);
+        ordered.sort(Comparator.naturalOrder());
+        return replay(truck, ordered);
+    }
+
+    /**
+     * Размещает посылки в новом грузовике того же размера в указанном порядке.
+     *
+     * @return новый грузовик или {@code null}, если посылки не поместились
+     */
+    private Truck replay(Truck truck, List<Parcel> parcels) {
+        Truck replayed = newTruck(truck.getWidth(), truck.getHeight());
+        for (Parcel parcel : parcels) {
+            if (!place(replayed, parcel)) {
+                release(List.of(replayed));
+                return null;
+            }
+        }
+        return replayed;
+    }
+
+    private boolean place(Truck truck, Parcel parcel) {
+        if (truck.getFreeCells() < parcel.getCompiledShape().getFilledCells()) {
+            return false;
+        }
+        Optional<ParcelPlacement> placement = parcelService.findPosition(truck, parcel);
+        placement.ifPresent(found -> parcelService.placeParcel(truck, parcel, found.shape(), found.x(), found.y()));
+        return placement.isPresent();
+    }
+
+    private Truck newTruck(int width, int height) {
+        return truckPool == null ? new Truck(width, height) : truckPool.acquire(width, height);
+    }
+
+    /**
+     * Возвращает в пул вытесненные грузовики, на которые не ссылаются переданные состояния.
+     */
+    private void releaseDropped(List<Truck> state, List<Truck> best) {
+        if (dropped.isEmpty()) {
+            return;
+        }
+        Set<Truck> referenced = Collections.newSetFromMap(new IdentityHashMap<>());
+        referenced.addAll(state);
+        referenced.addAll(best);
+        dropped.removeAll(referenced);
+        release(dropped);
+        dropped.clear();
+    }
+
+    private void release(Collection<Truck> trucks) {
+        if (truckPool != null) {
+            truckPool.releaseAll(trucks);
+        }
+    }
+
+    private double initialTemperature(List<Truck> state) {
+        long cells = 0;
+        long parcels = 0;
+        long area = 0;
+        for (Truck truck : state) {
+            cells += occupied(truck);
+            parcels += truck.getParcels().size();
+            area += (long) truck.getWidth() * truck.getHeight();
+        }
+        return parcels == 0 ? MIN_TEMPERATURE : (double) cells / parcels * area / state.size();
+    }
+
+    private double temperature(double initialTemperature) {
+        double remaining = (double) (deadlineNanos - System.nanoTime()) / Math.max(1, deadlineNanos - startNanos);
+        return Math.max(MIN_TEMPERATURE, initialTemperature * remaining);
+    }
+
+    private static double score(Truck truck) {
+        double occupied = occupied(truck);
+        return occupied * occupied;
+    }
+
+    private static int occupied(Truck truck) {
+        return truck.getWidth() * truck.getHeight() - truck.getFreeCells();
+    }
+}
@@ -1,5 +1,6 @@
 package org.hofftech.parking.service;
 
+import org.hofftech.parking.model.PackingPlan;
 import org.hofftech.parking.model.Parcel;
 import org.hofftech.parking.model.Truck;
 import org.springframework.stereotype.Service;
@@ -11,6 +12,8 @@ public class FormatterService {
 
     private static final String MARKDOWN_CODE_BLOCK_START = "```\n";
     private static final String MARKDOWN_CODE_BLOCK_END = "\n```";
+    private static final int PERCENT = 100;
+    private static final int DISPLAY_OFFSET = 1;
 
     /**
      * Форматирует переданную строку как Markdown-блок кода.
@@ -67,7 +70,7 @@ public class FormatterService {
         for (int y = truck.getHeight() - 1; y >= 0; y--) {
             truckRepresentation.append("+");
             for (int x = 0; x < truck.getWidth(); x++) {
-                char cell = truck.getGrid()[y][x];
+                char cell = truck.getCell(x, y);
                 truckRepresentation.append(cell == '\0' ? ' ' : cell);
             }
             truckRepresentation.append("+\n");
@@ -76,4 +79,26 @@ public class FormatterService {
 
         return truckRepresentation.toString();
     }
+
+    /**
+     * Форматирует план пробной погрузки: итоги и позиции посылок по грузовикам.
+     * Номера грузовиков и координаты выводятся с единицы, как при сохранении в JSON.
+     *
+     * @param plan план погрузки
+     * @return строковое представление плана
+     */
+    public String formatPackingPlan(PackingPlan plan) {
+        StringBuilder output = new StringBuilder(String.format("Пробная погрузка: грузовиков %d, заполнение %d%%%n",
+                plan.truckCount(), Math.round(plan.utilization() * PERCENT)));
+        for (int i = 0; i < plan.trucks().size(); i++) {
+            PackingPlan.TruckPlan truck = plan.trucks().get(i);
+            output.append(String.format("Грузовик %d (%dx%d), занято клеток: %d%n",
+                    i + DISPLAY_OFFSET, truck.width(), truck.height(), truck.occupiedCells()));
+            for (PackingPlan.PlannedParcel parcel : truck.parcels()) {
+                output.append(String.format("  %s: x=%d, y=%d%n",
+                        parcel.name(), parcel.x() + DISPLAY_OFFSET, parcel.y() + DISPLAY_OFFSET));
+            }
+        }
+        return output.toString();
+    }
 }
@@ -15,7 +15,8 @@ import java.util.stream.Collectors;
 /**
  * Сервис для управления заказами.
  * Предоставляет методы для добавления заказов и генерации отчетов по заказам пользователя
- * в заданном диапазоне дат.
+ * в заданном диапазоне дат. Заказы могут добавляться из нескольких потоков пакетной погрузки,
+ * поэтому доступ к списку заказов синхронизирован.
  */
 @Slf4j
 public class OrderManagerService {
@@ -29,7 +30,7 @@ public class OrderManagerService {
      *
      * @param order Заказ, который необходимо добавить.
      */
-    public void addOrder(Order order) {
+    public synchronized void addOrder(Order order) {
         orders.add(order);
     }
 
@@ -117,7 +118,7 @@ public class OrderManagerService {
                 .sum();
     }
 
-    private List<Order> getOrdersByUserIdAndDateRange(String userId, LocalDate dateFrom, LocalDate dateTo) {
+    private synchronized List<Order> getOrdersByUserIdAndDateRange(String userId, LocalDate dateFrom, LocalDate dateTo) {
         return orders.stream()
                 .filter(order -> order.getUserId().equals(userId))
                 .filter(order -> !order.getDate().isBefore(dateFrom))
@@ -0,0 +1,225 @@
+package org.hofftech.parking.service;
+
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.model.CompiledShape;
+import org.hofftech.parking.model.LoadRequest;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
+import org.hofftech.parking.model.Truck;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов упаковки для повторяющихся запросов на погрузку.
+ * <p>
+ * Ключ кэша — отсортированные формы посылок, размеры грузовиков и флаги алгоритма, поэтому одинаковый
+ * набор посылок, перечисленных в любом порядке, попадает в одну запись. В записи хранится план размещения:
+ * размеры грузовиков и для каждой посылки её ориентация и позиция. При попадании грузовики собираются заново
+ * из плана без поиска позиций, с посылками текущего запроса.
+ * </p>
+ * <p>
+ * Записи вытесняются по давности использования при превышении размера и считаются устаревшими
+ * по истечении времени жизни. Кэш потокобезопасен; упаковка при промахе выполняется вне блокировки.
+ * </p>
+ */
+@Slf4j
+public class PackingResultCache {
+    private static final String ROWS_DELIMITER = "\n";
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final ParcelService parcelService = new ParcelService();
+    private final Map<CacheKey, CachedPlan> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Пул, из которого берутся грузовики при сборке по плану, или {@code null}.
+     */
+    @Setter
+    private TruckPool truckPool;
+
+    /**
+     * @param maxEntries максимальное количество записей
+     * @param ttl        время жизни записи
+     */
+    public PackingResultCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    PackingResultCache(int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedPlan> eldest) {
+                return size() > PackingResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Возвращает грузовики по сохранённому плану или упаковывает посылки и сохраняет план.
+     *
+     * @param request запрос на погрузку
+     * @param parcels посылки запроса; одна посылка из каталога может встречаться несколько раз
+     * @param packer  упаковка посылок при промахе
+     * @return новые грузовики с размещёнными посылками запроса
+     */
+    public List<Truck> getOrPack(LoadRequest request, List<Parcel> parcels, Supplier<List<Truck>> packer) {
+        List<Parcel> ordered = new ArrayList<>(parcels);
+        ordered.sort(Comparator.comparing(PackingResultCache::shapeKey));
+        CacheKey key = CacheKey.of(request, ordered);
+
+        CachedPlan plan = find(key);
+        if (plan != null) {
+            hits.incrementAndGet();
+            log.debug("План погрузки найден в кэше: {} грузовиков.", plan.trucks().size());
+            return rebuild(plan, ordered);
+        }
+
+        misses.incrementAndGet();
+        List<Truck> trucks = packer.get();
+        CachedPlan packed = record(trucks, ordered);
+        if (packed != null) {
+            synchronized (entries) {
+                entries.put(key, packed);
+            }
+        }
+        return trucks;
+    }
+
+    /**
+     * Удаляет все записи, например после изменения форм посылок в каталоге.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        log.info("Кэш результатов упаковки очищен.");
+    }
+
+    /**
+     * @return количество запросов, для которых план найден в кэше
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return количество запросов, для которых выполнялась упаковка
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return текущее количество записей
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private CachedPlan find(CacheKey key) {
+        synchronized (entries) {
+            CachedPlan plan = entries.get(key);
+            if (plan != null && nanoClock.getAsLong() - plan.createdNanos() > ttlNanos) {
+                entries.remove(key);
+                return null;
+            }
+            return plan;
+        }
+    }
+
+    /**
+     * Составляет план размещения по упакованным грузовикам.
+     *
+     * @return план или {@code null}, если в грузовиках есть посылки не из запроса
+     */
+    private CachedPlan record(List<Truck> trucks, List<Parcel> ordered) {
+        Map<Parcel, Deque<Integer>> indexes = new IdentityHashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            indexes.computeIfAbsent(ordered.get(i), parcel -> new ArrayDeque<>()).add(i);
+        }
+        List<TruckPlan> truckPlans = new ArrayList<>(trucks.size());
+        for (Truck truck : trucks) {
+            List<PlacementPlan> placements = new ArrayList<>(truck.getPlacements().size());
+            for (ParcelPlacement placement : truck.getPlacements()) {
+                Deque<Integer> parcelIndexes = indexes.get(placement.parcel());
+                if (parcelIndexes == null || parcelIndexes.isEmpty()) {
+                    return null;
+                }
+                placements.add(new PlacementPlan(parcelIndexes.poll(), placement.shape(), placement.x(), placement.y()));
+            }
+            truckPlans.add(new TruckPlan(truck.getWidth(), truck.getHeight(), List.copyOf(placements)));
+        }
+        return new CachedPlan(List.copyOf(truckPlans), nanoClock.getAsLong());
+    }
+
+    /**
+     * Собирает новые грузовики по плану, размещая посылки запроса в сохранённых ориентациях и позициях.
+     */
+    private List<Truck> rebuild(CachedPlan plan, List<Parcel> ordered) {
+        List<Truck> trucks = new ArrayList<>(plan.trucks().size());
+        for (TruckPlan truckPlan : plan.trucks()) {
+            Truck truck = truckPool == null
+                    ? new Truck(truckPlan.width(), truckPlan.height())
+                    : truckPool.acquire(truckPlan.width(), truckPlan.height());
+            for (PlacementPlan placement : truckPlan.placements()) {
+                parcelService.placeParcel(truck, ordered.get(placement.parcelIndex()), placement.shape(),
+                        placement.x(), placement.y());
+            }
+            trucks.add(truck);
+        }
+        return trucks;
+    }
+
+    private static String shapeKey(Parcel parcel) {
+        return String.join(ROWS_DELIMITER, parcel.getShape());
+    }
+
+    /**
+     * Ключ кэша.
+     *
+     * @param shapes             отсортированные формы посылок
+     * @param trucks             размеры грузовиков в порядке запроса
+     * @param algorithm          флаги алгоритма в порядке полей {@link LoadRequest}
+     * @param optimizationBudget время поиска или {@code null}
+     */
+    private record CacheKey(List<String> shapes, List<String> trucks, List<Boolean> algorithm,
+                            Duration optimizationBudget) {
+
+        static CacheKey of(LoadRequest request, List<Parcel> ordered) {
+            List<String> shapes = ordered.stream().map(PackingResultCache::shapeKey).toList();
+            List<Boolean> algorithm = List.of(request.isEasyAlgorithm(), request.isEvenAlgorithm(),
+                    request.isBestFitAlgorithm(), request.isOptimalAlgorithm(), request.isPortfolioAlgorithm(),
+                    request.isImprovement(), request.isRotation());
+            return new CacheKey(shapes, List.copyOf(request.trucksFromArgs()), algorithm, request.optimizationBudget());
+        }
+    }
+
+    private record CachedPlan(List<TruckPlan> trucks, long createdNanos) {
+    }
+
+    private record TruckPlan(int width, int height, List<PlacementPlan> placements) {
+    }
+
+    private record PlacementPlan(int parcelIndex, CompiledShape shape, int x, int y) {
+    }
+}
@@ -1,11 +1,18 @@
 package org.hofftech.parking.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.model.CompiledShape;
+import org.hofftech.parking.model.GridRectangle;
 import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
 import org.hofftech.parking.model.ParcelStartPosition;
+import org.hofftech.parking.model.PlacementIndex;
 import org.hofftech.parking.model.Truck;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Сервис для управления упаковками в грузовике.
@@ -17,9 +24,7 @@ public class ParcelService {
 
     private static final int START_Y_POSITION = 0;
     private static final int START_X_POSITION = 0;
-    private static final char EMPTY_SPACE = ' ';
-    private static final double SUPPORT_FACTOR = 0.5;
-    private static final int INITIAL_SYMBOL_INDEX = 0;
+    private static final int NOT_FOUND = -1;
 
     /**
      * Проверяет, можно ли добавить указанную упаковку в грузовик
@@ -32,68 +37,56 @@ public class ParcelService {
      * @return {@code true}, если упаковку можно добавить, иначе {@code false}.
      */
     protected boolean canAddParcel(Truck truck, Parcel providedParcel, int startX, int startY) {
-        log.debug("Проверяем возможность добавить упаковку {} в координаты X={}, Y={}", providedParcel.getName(), startX, startY);
-        List<String> shape = providedParcel.getReversedShape();
-        int height = shape.size();
+        return canAddShape(truck, providedParcel.getCompiledShape(), startX, startY);
+    }
 
-        if (isParcelWithinLimits(truck, providedParcel, startX, startY, height, shape)) return false;
+    /**
+     * Проверяет, можно ли поставить форму в заданные координаты грузовика.
+     *
+     * @param truck  Грузовик, в который пытаемся добавить упаковку.
+     * @param shape  Скомпилированная форма упаковки.
+     * @param startX Начальная позиция по оси X.
+     * @param startY Начальная позиция по оси Y.
+     * @return {@code true}, если форму можно поставить, иначе {@code false}.
+     */
+    private boolean canAddShape(Truck truck, CompiledShape shape, int startX, int startY) {
+        if (!isParcelWithinLimits(truck, shape, startX, startY)) return false;
 
-        if (isIntersection(truck, providedParcel, startX, startY, height, shape)) return false;
+        if (isIntersection(truck, shape, startX, startY)) return false;
 
-        String topRow = shape.get(0);
-        double requiredSupport = Math.ceil(topRow.length() * SUPPORT_FACTOR);
-        int support = 0;
         if (startY == START_Y_POSITION) {
-            log.debug("Упаковка {} внизу грузовика, опора не требуется.", providedParcel.getName());
             return true;
         }
 
-        return !isParcelSupported(truck, providedParcel, startX, startY, topRow, support, requiredSupport);
+        return isParcelSupported(truck, shape, startX, startY);
     }
 
     /**
-     * Проверяет, поддерживается ли верхняя строка упаковки достаточным количеством опор.
+     * Проверяет, поддерживается ли нижняя строка упаковки достаточным количеством опор.
      *
-     * @param truck           Грузовик, в котором размещается упаковка.
-     * @param parcel          Упаковка, для которой выполняется проверка.
-     * @param startX          Начальная позиция по оси X.
-     * @param startY          Начальная позиция по оси Y.
-     * @param topRow          Верхняя строка формы упаковки.
-     * @param support         Количество текущих опор.
-     * @param requiredSupport Требуемое количество опор.
-     * @return {@code true}, если опор недостаточно, иначе {@code false}.
+     * @param truck  Грузовик, в котором размещается упаковка.
+     * @param shape  Скомпилированная форма упаковки.
+     * @param startX Начальная позиция по оси X.
+     * @param startY Начальная позиция по оси Y.
+     * @return {@code true}, если опор достаточно, иначе {@code false}.
      */
-    private boolean isParcelSupported(Truck truck, Parcel parcel, int startX, int startY, String topRow, int support, double requiredSupport) {
-        for (int x = INITIAL_SYMBOL_INDEX; x < topRow.length(); x++) {
-            if (topRow.charAt(x) != EMPTY_SPACE && truck.getGrid()[startY - 1][startX + x] != EMPTY_SPACE) {
-                support++;
-            }
-        }
-        if (support < requiredSupport) {
-            log.debug("Упаковка {} не имеет достаточной опоры. Требуется {}, доступно {}", parcel.getName(), requiredSupport, support);
-            return true;
-        }
-        return false;
+    private boolean isParcelSupported(Truck truck, CompiledShape shape, int startX, int startY) {
+        return truck.countOccupied(startY - 1, startX, shape.bottomRowMask()) >= shape.getRequiredSupport();
     }
 
     /**
      * Проверяет, пересекается ли упаковка с уже размещенными объектами в грузовике.
      *
      * @param truck  Грузовик, в котором проверяется пересечение.
-     * @param parcel Упаковка, для которой выполняется проверка.
+     * @param shape  Скомпилированная форма упаковки.
      * @param startX Начальная позиция по оси X.
      * @param startY Начальная позиция по оси Y.
-     * @param height Высота формы упаковки.
-     * @param shape  Форма упаковки в виде списка строк.
      * @return {@code true}, если происходит пересечение, иначе {@code false}.
      */
-    private boolean isIntersection(Truck truck, Parcel parcel, int startX, int startY, int height, List<String> shape) {
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < shape.get(y).length(); x++) {
-                if (shape.get(y).charAt(x) != ' ' && truck.getGrid()[startY + y][startX + x] != ' ') {
-                    log.debug("Упаковка {} пересекается с другой посылкой", parcel.getName());
-                    return true;
-                }
+    private boolean isIntersection(Truck truck, CompiledShape shape, int startX, int startY) {
+        for (int y = 0; y < shape.getHeight(); y++) {
+            if (truck.intersects(startY + y, startX, shape.rowMask(y))) {
+                return true;
             }
         }
         return false;
@@ -103,27 +96,18 @@ public class ParcelService {
      * Проверяет, находится ли упаковка в пределах размеров грузовика.
      *
      * @param truck  Грузовик, в который пытаемся добавить упаковку.
-     * @param parcel Упаковка, которую нужно проверить.
+     * @param shape  Скомпилированная форма упаковки.
      * @param startX Начальная позиция по оси X.
      * @param startY Начальная позиция по оси Y.
-     * @param height Высота формы упаковки.
-     * @param shape  Форма упаковки в виде списка строк.
-     * @return {@code true}, если упаковка выходит за пределы грузовика, иначе {@code false}.
-     */
-    private boolean isParcelWithinLimits(Truck truck, Parcel parcel, int startX, int startY, int height, List<String> shape) {
-        for (int y = 0; y < height; y++) {
-            int rowWidth = shape.get(y).length();
-            if (startX + rowWidth > truck.getWidth() || startY + y >= truck.getHeight()) {
-                log.debug("Упаковка {} выходит за пределы грузовика", parcel.getName());
-                return true;
-            }
-        }
-        return false;
+     * @return {@code true}, если упаковка помещается в грузовик, иначе {@code false}.
+     */
+    private boolean isParcelWithinLimits(Truck truck, CompiledShape shape, int startX, int startY) {
+        return startX + shape.getWidth() <= truck.getWidth() && startY + shape.getHeight() <= truck.getHeight();
     }
 
     /**
      * Пытается добавить указанную упаковку в грузовик.
-     * Перебирает все возможные позиции и проверяет возможность добавления.
+     * Ищет позицию методом {@link #findPosition(Truck, Parcel)} и размещает упаковку в найденной позиции.
      *
      * @param truck          Грузовик, в который пытаемся добавить упаковку.
      * @param providedParcel Упаковка, которую нужно добавить.
@@ -132,61 +116,325 @@ public class ParcelService {
     protected boolean tryPack(Truck truck, Parcel providedParcel) {
         log.info("Пытаемся добавить упаковку {} в грузовик.", providedParcel.getName());
 
-        List<String> shape = providedParcel.getReversedShape();
-        int height = shape.size();
+        Optional<ParcelPlacement> placement = findPosition(truck, providedParcel);
+        if (placement.isEmpty()) {
+            log.warn("Упаковка {} не смогла быть добавлена в грузовик.", providedParcel.getName());
+            return false;
+        }
 
-        boolean packed = iterateOverStartY(truck, providedParcel, shape, height);
+        log.info("Упаковка {} успешно добавлена", providedParcel.getName());
+        ParcelPlacement found = placement.get();
+        placeParcel(truck, providedParcel, found.shape(), found.x(), found.y());
+        return true;
+    }
 
-        if (!packed) {
-            log.warn("Упаковка {} не смогла быть добавлена в грузовик.", providedParcel.getName());
+    /**
+     * Ищет позицию для упаковки, не изменяя состояние грузовика и упаковки.
+     * <p>
+     * Сначала проверяются только позиции, в которых упаковка лежит на «горизонте» грузовика,
+     * и лишь если ни одна из них не подошла, перебираются все возможные позиции, включая полости под навесами.
+     * Если упаковку разрешено поворачивать, поиск выполняется для каждой ориентации из {@link #orientationsOf(Parcel)}
+     * и выбирается самая нижняя, а затем самая левая из найденных позиций.
+     * Метод только читает грузовик, поэтому его можно вызывать для разных грузовиков параллельно.
+     * </p>
+     *
+     * @param truck          Грузовик, в который пытаемся добавить упаковку.
+     * @param providedParcel Упаковка, которую нужно добавить.
+     * @return найденные позиция и ориентация или пустой {@link Optional}, если упаковка не помещается
+     */
+    protected Optional<ParcelPlacement> findPosition(Truck truck, Parcel providedParcel) {
+        ParcelStartPosition best = null;
+        CompiledShape bestShape = null;
+        for (CompiledShape shape : orientationsOf(providedParcel)) {
+            ParcelStartPosition position = findPosition(truck, shape);
+            if (position != null && (best == null || isLowerOrLefter(position, best))) {
+                best = position;
+                bestShape = shape;
+            }
+        }
+        if (best == null) {
+            log.debug("Упаковка {} не помещается в грузовик.", providedParcel.getName());
+            return Optional.empty();
+        }
+        return Optional.of(new ParcelPlacement(providedParcel, bestShape, best.x(), best.y()));
+    }
+
+    /**
+     * Возвращает ориентации, в которых упаковку можно размещать.
+     * По умолчанию упаковка размещается только в том виде, в котором задана её форма.
+     *
+     * @param providedParcel Упаковка, которую нужно добавить.
+     * @return непустой список скомпилированных форм; порядок определяет выбор среди одинаково хороших позиций
+     */
+    protected List<CompiledShape> orientationsOf(Parcel providedParcel) {
+        return List.of(providedParcel.getCompiledShape());
+    }
+
+    private ParcelStartPosition findPosition(Truck truck, CompiledShape shape) {
+        if (!hasRoomFor(truck, shape)) {
+            return null;
         }
 
-        return packed;
+        ParcelStartPosition position = findOnSkyline(truck, shape);
+        if (position == null) {
+            position = iterateOverStartY(truck, shape, START_X_POSITION, START_Y_POSITION);
+        }
+        return position;
+    }
+
+    private boolean isLowerOrLefter(ParcelStartPosition position, ParcelStartPosition other) {
+        return position.y() < other.y() || (position.y() == other.y() && position.x() < other.x());
     }
 
     /**
-     * Перебирает возможные позиции по оси Y и пытается разместить упаковку.
+     * Пытается добавить очередную копию из серии одинаковых упаковок, продолжая полный перебор с границы,
+     * на которой остановилась предыдущая копия в этом грузовике.
+     * <p>
+     * Порядок проверки тот же, что в {@link #findPosition(Truck, Parcel)}, поэтому копия занимает ту же позицию,
+     * что и при поиске с начала грузовика. После размещения граница {@code cursor} обновляется.
+     * </p>
      *
      * @param truck          Грузовик, в который пытаемся добавить упаковку.
      * @param providedParcel Упаковка, которую нужно добавить.
-     * @param shape          Форма упаковки в виде списка строк.
-     * @param height         Высота формы упаковки.
-     * @return {@code true}, если упаковку удалось добавить, иначе {@code false}.
+     * @param cursor         Граница перебора для серии в этом грузовике.
+     * @return {@code true}, если упаковка была успешно добавлена, иначе {@code false}.
      */
-    private boolean iterateOverStartY(Truck truck, Parcel providedParcel, List<String> shape, int height) {
-        for (int startY = START_Y_POSITION; startY <= truck.getHeight() - height; startY++) {
-            for (int startX = START_X_POSITION; startX <= truck.getWidth() - shape.getFirst().length(); startX++) {
-                if (canAddParcel(truck, providedParcel, startX, startY)) {
-                    log.info("Упаковка {} успешно добавлена", providedParcel.getName());
-                    providedParcel.setParcelStartPosition(new ParcelStartPosition(startX, startY));
-                    placeParcel(truck, providedParcel, startX, startY);
-                    return true;
+    protected boolean tryPackNextCopy(Truck truck, Parcel providedParcel, ScanCursor cursor) {
+        CompiledShape shape = providedParcel.getCompiledShape();
+        if (!hasRoomFor(truck, shape)) {
+            return false;
+        }
+
+        ParcelStartPosition position = findOnSkyline(truck, shape);
+        if (position == null) {
+            position = iterateOverStartY(truck, shape, cursor.getX(), cursor.getY());
+            if (position == null) {
+                return false;
+            }
+            cursor.moveTo(position);
+        }
+        cursor.limitTo(position.y());
+        placeParcel(truck, providedParcel, shape, position.x(), position.y());
+        return true;
+    }
+
+    /**
+     * Проверяет по индексу свободного пространства, что каждый заполненный блок формы
+     * помещается хотя бы в один максимальный пустой прямоугольник грузовика.
+     * Если это не так, ни одна позиция в грузовике не подойдёт.
+     *
+     * @param truck Грузовик, в который пытаемся добавить упаковку.
+     * @param shape Скомпилированная форма упаковки.
+     * @return {@code false}, если упаковка заведомо не поместится в грузовик
+     */
+    private boolean hasRoomFor(Truck truck, CompiledShape shape) {
+        for (GridRectangle block : shape.getBlocks()) {
+            if (!truck.getFreeSpace().canFit(block.width(), block.height())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ищет самую нижнюю, а затем самую левую позицию, в которой упаковка лежит на «горизонте» грузовика.
+     * <p>
+     * Для каждого столбца {@code startX} высота укладки вычисляется по профилю высот грузовика
+     * и профилю нижних клеток формы, поэтому на каждый столбец проверяется ровно одна позиция.
+     * </p>
+     *
+     * @param truck Грузовик, в который пытаемся добавить упаковку.
+     * @param shape Скомпилированная форма упаковки.
+     * @return найденная позиция или {@code null}, если ни одна позиция на «горизонте» не подходит
+     */
+    private ParcelStartPosition findOnSkyline(Truck truck, CompiledShape shape) {
+        int bestX = NOT_FOUND;
+        int bestY = NOT_FOUND;
+
+        for (int startX = START_X_POSITION; startX <= truck.getWidth() - shape.getWidth(); startX++) {
+            int restingY = findRestingY(truck, shape, startX);
+            if (bestY != NOT_FOUND && restingY >= bestY) {
+                continue;
+            }
+            if (canAddShape(truck, shape, startX, restingY)) {
+                bestX = startX;
+                bestY = restingY;
+                if (bestY == START_Y_POSITION) {
+                    break;
                 }
             }
         }
-        return false;
+
+        return bestY == NOT_FOUND ? null : new ParcelStartPosition(bestX, bestY);
+    }
+
+    /**
+     * Вычисляет минимальную высоту, на которой упаковка, сдвинутая в столбец {@code startX},
+     * не опускается ниже «горизонта» грузовика ни в одном из своих столбцов.
+     *
+     * @param truck  Грузовик, в который пытаемся добавить упаковку.
+     * @param shape  Скомпилированная форма упаковки.
+     * @param startX Начальная позиция по оси X.
+     * @return координата Y, на которой упаковка ложится на «горизонт»
+     */
+    private int findRestingY(Truck truck, CompiledShape shape, int startX) {
+        int restingY = START_Y_POSITION;
+        for (int x = 0; x < shape.getWidth(); x++) {
+            int columnBottom = shape.columnBottom(x);
+            if (columnBottom != NOT_FOUND) {
+                restingY = Math.max(restingY, truck.getColumnHeight(startX + x) - columnBottom);
+            }
+        }
+        return restingY;
+    }
+
+    /**
+     * Перебирает возможные позиции по оси Y и ищет первую подходящую позицию для упаковки,
+     * начиная с позиции {@code (fromX, fromY)}.
+     *
+     * @param truck Грузовик, в который пытаемся добавить упаковку.
+     * @param shape Скомпилированная форма упаковки.
+     * @param fromX Позиция по оси X, с которой начинается перебор в строке {@code fromY}.
+     * @param fromY Строка, с которой начинается перебор.
+     * @return найденная позиция или {@code null}, если упаковка не помещается
+     */
+    private ParcelStartPosition iterateOverStartY(Truck truck, CompiledShape shape, int fromX, int fromY) {
+        int lowestStartY = shape.rowFilledCells(START_Y_POSITION) > 0 ? truck.getLowestOpenRow() : START_Y_POSITION;
+        int firstStartY = Math.max(lowestStartY, fromY);
+        for (int startY = firstStartY; startY <= truck.getHeight() - shape.getHeight(); startY++) {
+            if (!rowsHaveRoom(truck, shape, startY)) {
+                continue;
+            }
+            int firstStartX = startY == fromY ? fromX : START_X_POSITION;
+            for (int startX = firstStartX; startX <= truck.getWidth() - shape.getWidth(); startX++) {
+                if (canAddShape(truck, shape, startX, startY)) {
+                    return new ParcelStartPosition(startX, startY);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Проверяет по счётчикам свободных клеток строк, что в каждой строке грузовика,
+     * которую займёт упаковка, осталось не меньше клеток, чем в соответствующей строке формы.
+     *
+     * @param truck  Грузовик, в который пытаемся добавить упаковку.
+     * @param shape  Скомпилированная форма упаковки.
+     * @param startY Начальная позиция по оси Y.
+     * @return {@code false}, если упаковка заведомо не поместится ни в одну позицию строки {@code startY}
+     */
+    private boolean rowsHaveRoom(Truck truck, CompiledShape shape, int startY) {
+        for (int y = 0; y < shape.getHeight(); y++) {
+            if (truck.getRowFreeCells(startY + y) < shape.rowFilledCells(y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Размещает упаковку в заданной ориентации без проверки позиции: позиция и ориентация должны быть
+     * найдены {@link #findPosition(Truck, Parcel)} или взяты из ранее найденного размещения.
+     * Сама упаковка не изменяется: позиция и ориентация записываются в {@link ParcelPlacement} грузовика.
+     *
+     * @param truck  Грузовик, в котором размещается упаковка.
+     * @param parcel Упаковка, которую нужно разместить.
+     * @param shape  Ориентация упаковки.
+     * @param startX Начальная позиция по оси X.
+     * @param startY Начальная позиция по оси Y.
+     */
+    protected void placeParcel(Truck truck, Parcel parcel, CompiledShape shape, int startX, int startY) {
+        int placementId = truck.addPlacement(new ParcelPlacement(parcel, shape, startX, startY));
+        for (int y = 0; y < shape.getHeight(); y++) {
+            String row = shape.getRows().get(y);
+            for (int x = 0; x < row.length(); x++) {
+                if (shape.isFilled(x, y)) {
+                    truck.occupy(startX + x, startY + y, row.charAt(x), placementId);
+                }
+            }
+        }
+        for (GridRectangle block : shape.getBlocks()) {
+            truck.getFreeSpace().occupy(new GridRectangle(
+                    startX + block.x(), startY + block.y(), block.width(), block.height()));
+        }
+        log.debug("Упаковка {} размещена на грузовике", parcel.getName());
     }
 
     /**
-     * Размещает указанную упаковку на сетке грузовика в заданных координатах.
+     * Размещает упаковку в заданной позиции и форме, если позиция допустима, например при восстановлении
+     * ранее сохранённого грузовика. Позиция проверяется так же, как при поиске: упаковка должна помещаться
+     * в грузовик, не пересекаться с уже размещёнными упаковками и иметь достаточную опору.
      *
      * @param truck  Грузовик, в котором размещается упаковка.
      * @param parcel Упаковка, которую нужно разместить.
      * @param startX Начальная позиция по оси X.
      * @param startY Начальная позиция по оси Y.
+     * @return {@code true}, если упаковка размещена, иначе {@code false}.
      */
-    protected void placeParcel(Truck truck, Parcel parcel, int startX, int startY) {
-        List<String> shape = parcel.getReversedShape();
+    public boolean restoreParcel(Truck truck, Parcel parcel, int startX, int startY) {
+        CompiledShape shape = parcel.getCompiledShape();
+        if (startX < START_X_POSITION || startY < START_Y_POSITION || !canAddShape(truck, shape, startX, startY)) {
+            return false;
+        }
+        placeParcel(truck, parcel, shape, startX, startY);
+        return true;
+    }
 
-        for (int y = 0; y < shape.size(); y++) {
-            for (int x = 0; x < shape.get(y).length(); x++) {
-                if (shape.get(y).charAt(x) != ' ') {
-                    truck.getGrid()[startY + y][startX + x] = shape.get(y).charAt(x);
+    /**
+     * Ищет упаковку, которая потеряет достаточную опору, если убрать из грузовика указанные размещения.
+     * Опора проверяется по тому же правилу, что и при размещении, но без клеток убираемых размещений.
+     * <p>
+     * Проверяются только упаковки, нижняя строка которых стоит на клетках убираемых размещений:
+     * они находятся по индексу размещений над клетками убираемых упаковок, без просмотра всего грузовика.
+     * </p>
+     *
+     * @param truck        Грузовик с размещёнными упаковками.
+     * @param placementIds Идентификаторы убираемых размещений.
+     * @return размещение упаковки, которая останется без опоры, или пустой результат, если убрать можно
+     */
+    public Optional<ParcelPlacement> findUnsupportedAfterRemoval(Truck truck, Set<Integer> placementIds) {
+        Set<Integer> checked = new HashSet<>();
+        for (int placementId : placementIds) {
+            for (ParcelStartPosition cell : truck.getPlacementCells(placementId)) {
+                int aboveY = cell.y() + 1;
+                if (aboveY >= truck.getHeight()) {
+                    continue;
+                }
+                int aboveId = truck.getPlacementId(cell.x(), aboveY);
+                if (aboveId == PlacementIndex.NO_PLACEMENT || placementIds.contains(aboveId) || !checked.add(aboveId)) {
+                    continue;
                 }
+                ParcelPlacement above = truck.getPlacements().get(aboveId);
+                if (above.y() == aboveY && !isSupportedWithout(truck, above, placementIds)) {
+                    return Optional.of(above);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Подсчитывает опоры под нижней строкой размещения, не принадлежащие убираемым размещениям.
+     *
+     * @param truck        Грузовик с размещёнными упаковками.
+     * @param placement    Проверяемое размещение.
+     * @param placementIds Идентификаторы убираемых размещений.
+     * @return {@code true}, если оставшихся опор достаточно
+     */
+    private boolean isSupportedWithout(Truck truck, ParcelPlacement placement, Set<Integer> placementIds) {
+        CompiledShape shape = placement.shape();
+        int supportY = placement.y() - 1;
+        int support = 0;
+        for (int x = 0; x < shape.rowWidth(START_Y_POSITION); x++) {
+            if (!shape.isFilled(x, START_Y_POSITION)) {
+                continue;
+            }
+            int supportId = truck.getPlacementId(placement.x() + x, supportY);
+            if (supportId != PlacementIndex.NO_PLACEMENT && !placementIds.contains(supportId)) {
+                support++;
             }
         }
-        parcel.setParcelStartPosition(new ParcelStartPosition(startX, startY));
-        truck.getParcels().add(parcel);
-        log.info("Упаковка {} размещена на грузовике", parcel.getName());
+        return support >= shape.getRequiredSupport();
     }
 }
@@ -0,0 +1,180 @@
+package org.hofftech.parking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.exception.ValidateException;
+import org.hofftech.parking.model.CompiledShape;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
+import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.validator.ParcelValidator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис размещения упаковок, который кроме формы в заданном виде пробует её повороты
+ * на 90°, 180° и 270° и зеркальные отражения.
+ * <p>
+ * Ориентации вычисляются один раз для каждой формы и кэшируются. Совпадающие ориентации симметричных форм
+ * отбрасываются, как и ориентации, не прошедшие проверку {@link ParcelValidator#validateDiagonalTouch(List)},
+ * в том числе исходная; требование опоры проверяется при размещении так же, как для неповёрнутых упаковок.
+ * Выбранная ориентация записывается в размещение, а форма самой упаковки не изменяется.
+ * </p>
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class RotatingParcelService extends ParcelService {
+    private static final char EMPTY_SPACE = ' ';
+    private static final int QUARTER_TURNS = 4;
+    private static final String ROWS_DELIMITER = "\n";
+    private static final Comparator<CompiledShape> CANONICAL_ORDER = Comparator
+            .comparingInt(CompiledShape::getHeight)
+            .thenComparingInt(CompiledShape::getWidth)
+            .thenComparing(shape -> String.join(ROWS_DELIMITER, shape.getRows()));
+
+    private final ParcelValidator parcelValidator;
+    private final Map<List<String>, List<CompiledShape>> orientationsByShape = new ConcurrentHashMap<>();
+
+    /**
+     * Возвращает допустимые ориентации упаковки из кэша, вычисляя их при первом обращении к форме.
+     */
+    @Override
+    protected List<CompiledShape> orientationsOf(Parcel providedParcel) {
+        List<String> shape = providedParcel.getShape();
+        List<CompiledShape> orientations = orientationsByShape.get(shape);
+        if (orientations == null) {
+            List<CompiledShape> computed = computeOrientations(providedParcel);
+            orientations = orientationsByShape.putIfAbsent(List.copyOf(shape), computed);
+            if (orientations == null) {
+                orientations = computed;
+            }
+        }
+        return orientations;
+    }
+
+    /**
+     * Размещает очередную копию серии полным поиском по всем ориентациям.
+     * Граница перебора серии относится к одной форме, поэтому для поворачиваемых упаковок не используется.
+     */
+    @Override
+    protected boolean tryPackNextCopy(Truck truck, Parcel providedParcel, ScanCursor cursor) {
+        Optional<ParcelPlacement> placement = findPosition(truck, providedParcel);
+        placement.ifPresent(found -> placeParcel(truck, providedParcel, found.shape(), found.x(), found.y()));
+        return placement.isPresent();
+    }
+
+    /**
+     * Строит все различные допустимые ориентации формы упаковки.
+     *
+     * @param providedParcel упаковка
+     * @return неизменяемый список ориентаций в каноническом порядке; если ни одна ориентация не прошла проверку,
+     *         список из заданной формы упаковки
+     */
+    private List<CompiledShape> computeOrientations(Parcel providedParcel) {
+        List<String> grid = toRectangle(providedParcel.getShape());
+        Set<List<String>> seen = new HashSet<>();
+        List<CompiledShape> orientations = new ArrayList<>();
+
+        for (List<String> start : List.of(grid, mirror(grid))) {
+            List<String> rotated = start;
+            for (int turn = 0; turn < QUARTER_TURNS; turn++) {
+                List<String> candidate = trim(rotated);
+                if (!candidate.isEmpty() && seen.add(candidate) && isValid(candidate)) {
+                    orientations.add(CompiledShape.compile(candidate));
+                }
+                rotated = rotateClockwise(rotated);
+            }
+        }
+        if (orientations.isEmpty()) {
+            return List.of(providedParcel.getCompiledShape());
+        }
+        orientations.sort(CANONICAL_ORDER);
+        log.debug("Для упаковки {} найдено ориентаций: {}.", providedParcel.getName(), orientations.size());
+        return List.copyOf(orientations);
+    }
+
+    private boolean isValid(List<String> rows) {
+        try {
+            parcelValidator.validateDiagonalTouch(rows);
+            return true;
+        } catch (ValidateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Дополняет строки формы пробелами до одинаковой длины.
+     */
+    private static List<String> toRectangle(List<String> rows) {
+        int width = 0;
+        for (String row : rows) {
+            width = Math.max(width, row.length());
+        }
+        List<String> grid = new ArrayList<>(rows.size());
+        for (String row : rows) {
+            grid.add(row + String.valueOf(EMPTY_SPACE).repeat(width - row.length()));
+        }
+        return grid;
+    }
+
+    private static List<String> mirror(List<String> grid) {
+        List<String> mirrored = new ArrayList<>(grid.size());
+        for (String row : grid) {
+            mirrored.add(new StringBuilder(row).reverse().toString());
+        }
+        return mirrored;
+    }
+
+    /**
+     * Поворачивает прямоугольную форму, заданную сверху вниз, на 90° по часовой стрелке.
+     */
+    private static List<String> rotateClockwise(List<String> grid) {
+        int height = grid.size();
+        int width = grid.getFirst().length();
+        List<String> rotated = new ArrayList<>(width);
+        for (int column = 0; column < width; column++) {
+            StringBuilder row = new StringBuilder(height);
+            for (int source = height - 1; source >= 0; source--) {
+                row.append(grid.get(source).charAt(column));
+            }
+            rotated.add(row.toString());
+        }
+        return rotated;
+    }
+
+    /**
+     * Убирает пустые строки сверху и снизу, общий отступ слева и пробелы в конце строк.
+     *
+     * @return строки формы или пустой список, если внутри формы есть пустая строка
+     */
+    private static List<String> trim(List<String> grid) {
+        int top = 0;
+        int bottom = grid.size();
+        while (top < bottom && grid.get(top).isBlank()) {
+            top++;
+        }
+        while (bottom > top && grid.get(bottom - 1).isBlank()) {
+            bottom--;
+        }
+        int indent = Integer.MAX_VALUE;
+        for (int i = top; i < bottom; i++) {
+            String row = grid.get(i);
+            if (row.isBlank()) {
+                return List.of();
+            }
+            indent = Math.min(indent, row.length() - row.stripLeading().length());
+        }
+        List<String> trimmed = new ArrayList<>(bottom - top);
+        for (int i = top; i < bottom; i++) {
+            trimmed.add(grid.get(i).substring(indent).stripTrailing());
+        }
+        return List.copyOf(trimmed);
+    }
+}
@@ -0,0 +1,50 @@
+package org.hofftech.parking.service;
+
+import org.hofftech.parking.model.ParcelStartPosition;
+
+/**
+ * Граница полного перебора позиций для серии одинаковых посылок в одном грузовике.
+ * <p>
+ * Полный перебор проходит позиции по строкам снизу вверх, а внутри строки слева направо.
+ * Все позиции, предшествующие границе в этом порядке, заведомо не подходят для формы серии,
+ * поэтому следующая копия начинает перебор с границы, а не с начала грузовика.
+ * </p>
+ */
+final class ScanCursor {
+    private static final int START_POSITION = 0;
+
+    private int x = START_POSITION;
+    private int y = START_POSITION;
+
+    int getX() {
+        return x;
+    }
+
+    int getY() {
+        return y;
+    }
+
+    /**
+     * Переносит границу в позицию, найденную полным перебором: все предшествующие ей позиции были проверены.
+     *
+     * @param position найденная позиция
+     */
+    void moveTo(ParcelStartPosition position) {
+        x = position.x();
+        y = position.y();
+    }
+
+    /**
+     * Учитывает размещение копии: посылка, стоящая на строке {@code placedY}, может дать опору
+     * позициям выше этой строки, поэтому граница не может оказаться выше начала следующей строки.
+     *
+     * @param placedY строка, на которую поставлена копия
+     */
+    void limitTo(int placedY) {
+        int nextRow = placedY + 1;
+        if (y > nextRow || (y == nextRow && x > START_POSITION)) {
+            y = nextRow;
+            x = START_POSITION;
+        }
+    }
+}
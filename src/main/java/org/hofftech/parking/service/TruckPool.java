@@ -0,0 +1,102 @@
+package org.hofftech.parking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.model.Truck;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Пул грузовиков для повторного использования между запросами на погрузку.
+ * <p>
+ * Грузовики хранятся по размеру. Выдаваемый грузовик очищается методом {@link Truck#reset()}: собственные
+ * строки карты занятости и плитки сетки обнуляются на месте, поэтому погрузка в него почти не выделяет памяти.
+ * Объём пула ограничен оценкой сверху памяти грузовиков; грузовики сверх лимита не сохраняются.
+ * </p>
+ * <p>
+ * Возвращать в пул можно только грузовики, на которые после погрузки больше нет ссылок.
+ * Грузовики с сеткой вне кучи не принимаются, так как их память освобождается вместе с областью запроса.
+ * Пул потокобезопасен.
+ * </p>
+ */
+@Slf4j
+public class TruckPool {
+    private final long maxPooledBytes;
+    private final Map<TruckSize, Deque<Truck>> trucksBySize = new HashMap<>();
+    private long pooledBytes;
+
+    /**
+     * @param maxPooledBytes максимальная оценка памяти грузовиков, хранимых в пуле
+     */
+    public TruckPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Выдаёт пустой грузовик указанного размера из пула или создаёт новый.
+     *
+     * @param width  ширина грузовика
+     * @param height высота грузовика
+     * @return пустой грузовик
+     */
+    public Truck acquire(int width, int height) {
+        Truck truck;
+        synchronized (this) {
+            Deque<Truck> trucks = trucksBySize.get(new TruckSize(width, height));
+            truck = trucks == null ? null : trucks.poll();
+            if (truck != null) {
+                pooledBytes -= estimateBytes(truck);
+            }
+        }
+        if (truck == null) {
+            return new Truck(width, height);
+        }
+        truck.reset();
+        return truck;
+    }
+
+    /**
+     * Возвращает грузовики в пул, пока не исчерпан лимит памяти.
+     *
+     * @param trucks грузовики, на которые больше нет ссылок
+     */
+    public synchronized void releaseAll(Collection<Truck> trucks) {
+        int released = 0;
+        for (Truck truck : trucks) {
+            long bytes = estimateBytes(truck);
+            if (!truck.isOnHeap() || pooledBytes + bytes > maxPooledBytes) {
+                continue;
+            }
+            trucksBySize.computeIfAbsent(new TruckSize(truck.getWidth(), truck.getHeight()), size -> new ArrayDeque<>())
+                    .push(truck);
+            pooledBytes += bytes;
+            released++;
+        }
+        log.debug("Возвращено в пул грузовиков: {}, занято памяти пула: {} байт.", released, pooledBytes);
+    }
+
+    /**
+     * @return оценка памяти грузовиков, хранимых в пуле, в байтах
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Оценивает сверху память грузовика: полностью выделенные карта занятости, сетка, индекс размещений и счётчики.
+     */
+    static long estimateBytes(Truck truck) {
+        long width = truck.getWidth();
+        long height = truck.getHeight();
+        return height * Truck.wordsFor(truck.getWidth()) * Long.BYTES
+                + width * height * Character.BYTES
+                + width * height * Integer.BYTES
+                + (width + height) * Integer.BYTES;
+    }
+
+    private record TruckSize(int width, int height) {
+    }
+}
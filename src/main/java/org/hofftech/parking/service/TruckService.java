@@ -1,22 +1,39 @@
 package org.hofftech.parking.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.hofftech.parking.exception.InsufficientTrucksException;
 import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
 import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.model.TruckSize;
+import org.hofftech.parking.validator.LoadFeasibilityValidator;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
 
 /**
  * Сервис для управления грузовиками и размещения посылок.
  * <p>
- * Предоставляет методы для распределения посылок по нескольким грузовикам,
- * равномерного распределения, создания грузовиков, а также для печати
- * состояния грузовиков.
+ * Создаёт грузовики по переданным размерам или формирует парк стандартных грузовиков, проверяет
+ * выполнимость погрузки и распределяет посылки по грузовикам: первым подходящим, равномерным
+ * и наилучшим размещением, методом ветвей и границ и улучшением готового распределения.
+ * Также печатает состояние грузовиков.
  * </p>
+ * <p>
  * Логирование осуществляется с помощью аннотации {@code @Slf4j}.
  * Конструктор с параметрами генерируется с помощью {@code @RequiredArgsConstructor},
  * что обеспечивает внедрение необходимых зависимостей.
@@ -26,21 +43,58 @@ import java.util.List;
 @RequiredArgsConstructor
 @Service
 public class TruckService {
-    private static final String TRUCK_SIZE_SPLITTER = "x";
-
-    private static final int WIDTH_INDEX = 0;
-    private static final int HEIGHT_INDEX = 1;
-    private static final int EXPECTED_SIZE_PARTS = 2;
-
-    private static final String INVALID_TRUCK_SIZE_FORMAT_MESSAGE = "Размер грузовика должен быть в формате ширинаxвысота, например 10x10.";
-    private static final String NON_NUMERIC_TRUCK_SIZE_MESSAGE = "Размеры грузовика должны быть числами.";
-    private static final String NEGATIVE_TRUCK_SIZE_MESSAGE = "Размеры грузовика должны быть положительными числами.";
-
     private static final String STANDARD_TRUCK_SIZE = "10x10";
     private static final int NEXT_TRUCK_OFFSET = 1;
+    private static final int NOT_PLACED = -1;
+    private static final int DEFAULT_PARALLEL_PROBING_MIN_TRUCKS = 16;
+    private static final int LOWEST_TRUCK_INDEX = -1;
+    private static final int SINGLE_PARCEL_RUN = 1;
+    private static final int MIN_FLEET_SIZE = 1;
+    private static final Comparator<TruckCapacity> BY_FREE_CELLS = Comparator
+            .comparingInt(TruckCapacity::freeCells)
+            .thenComparingInt(TruckCapacity::truckIndex);
+    private static final Comparator<TruckLoad> BY_OCCUPIED_CELLS = Comparator
+            .comparingInt(TruckLoad::occupiedCells)
+            .thenComparingInt(TruckLoad::truckIndex);
 
     private final ParcelService parcelService;
     private final FormatterService formatterService;
+    private final LoadFeasibilityValidator feasibilityValidator = new LoadFeasibilityValidator();
+
+    /**
+     * Флаг параллельного поиска позиций по грузовикам в общем пуле fork-join.
+     * Посылка размещается в грузовике с наименьшим индексом из подошедших, поэтому результат
+     * совпадает с последовательным поиском.
+     */
+    @Setter
+    private boolean parallelProbing;
+
+    /**
+     * Минимальное количество грузовиков, начиная с которого используется параллельный поиск.
+     */
+    @Setter
+    private int parallelProbingMinTrucks = DEFAULT_PARALLEL_PROBING_MIN_TRUCKS;
+
+    /**
+     * Пул грузовиков для повторного использования или {@code null}, если грузовики всегда создаются заново.
+     */
+    @Setter
+    private TruckPool truckPool;
+
+    /**
+     * Создаёт сервис грузовиков с теми же настройками, но с другим сервисом размещения упаковок,
+     * например разрешающим повороты упаковок.
+     *
+     * @param otherParcelService сервис размещения упаковок
+     * @return новый экземпляр {@link TruckService}
+     */
+    public TruckService withParcelService(ParcelService otherParcelService) {
+        TruckService truckService = new TruckService(otherParcelService, formatterService);
+        truckService.setParallelProbing(parallelProbing);
+        truckService.setParallelProbingMinTrucks(parallelProbingMinTrucks);
+        truckService.setTruckPool(truckPool);
+        return truckService;
+    }
 
     /**
      * Добавляет посылки в несколько грузовиков.
@@ -48,6 +102,8 @@ public class TruckService {
      * <p>
      * Размещает список посылок в предоставленных грузовиках.
      * При необходимости используется равномерный алгоритм распределения.
+     * Перед упаковкой запрос проверяется {@link LoadFeasibilityValidator}, который сразу отклоняет
+     * заведомо невыполнимую погрузку с указанием причины.
      * </p>
      *
      * @param parcelList        список посылок для размещения
@@ -56,12 +112,30 @@ public class TruckService {
      * @return список грузовиков с размещенными посылками
      * @throws InsufficientTrucksException если список грузовиков пуст и стандартные размеры не заданы
      * @throws InsufficientTrucksException если недостаточно грузовиков для размещения всех посылок
+     * @throws InsufficientTrucksException если погрузка отклонена предварительной проверкой
      */
     public List<Truck> addParcelsToMultipleTrucks(List<Parcel> parcelList, Boolean isEvenAlgorithm, List<String> trucksFromArgs) {
+        return addParcelsToMultipleTrucks(parcelList, isEvenAlgorithm, trucksFromArgs, Comparator.naturalOrder());
+    }
+
+    /**
+     * Добавляет посылки в несколько грузовиков, предварительно упорядочив их указанным образом.
+     *
+     * @param parcelList      список посылок для размещения
+     * @param isEvenAlgorithm флаг, указывающий использовать ли равномерный алгоритм
+     * @param trucksFromArgs  список размеров грузовиков, предоставленных через аргументы
+     * @param order           порядок, в котором размещаются посылки
+     * @return список грузовиков с размещенными посылками
+     * @throws InsufficientTrucksException если недостаточно грузовиков для размещения всех посылок
+     * @throws InsufficientTrucksException если погрузка отклонена предварительной проверкой
+     * @see #addParcelsToMultipleTrucks(List, Boolean, List)
+     */
+    public List<Truck> addParcelsToMultipleTrucks(List<Parcel> parcelList, Boolean isEvenAlgorithm,
+                                                  List<String> trucksFromArgs, Comparator<Parcel> order) {
         log.info("Начало размещения упаковок. Всего упаковок: {}", parcelList.size());
 
-        parcelList.sort(null);
-        log.info("Упаковки отсортированы по высоте и ширине.");
+        parcelList.sort(order);
+        log.info("Упаковки отсортированы в порядке размещения.");
 
         List<Truck> trucks = new ArrayList<>();
 
@@ -73,50 +147,410 @@ public class TruckService {
         for (String providedTruckSize : trucksFromArgs) {
             trucks.add(createTruck(providedTruckSize));
         }
+        feasibilityValidator.validate(parcelList, trucks, parcelService::orientationsOf);
 
         if (Boolean.TRUE.equals(isEvenAlgorithm)) {
             distributeParcelsEvenly(parcelList, trucks);
         } else {
-            placeParcels(parcelList, trucks);
+            placeParcels(parcelList, trucks, false);
+        }
+
+        log.info("Размещение завершено. Всего грузовиков: {}", trucks.size());
+        return trucks;
+    }
+
+    /**
+     * Догружает посылки в ранее загруженные грузовики.
+     *
+     * <p>
+     * Посылки сортируются так же, как в {@link #addParcelsToMultipleTrucks}, и размещаются сначала
+     * в свободные клетки загруженных грузовиков, затем в грузовики из аргументов. Уже размещённые
+     * посылки не перемещаются. Если грузовики в аргументах не переданы, при нехватке места
+     * добавляются стандартные грузовики.
+     * </p>
+     *
+     * @param parcelList     список посылок для догрузки
+     * @param loadedTrucks   ранее загруженные грузовики; не изменяются, если догрузка не удалась
+     * @param trucksFromArgs размеры дополнительных грузовиков
+     * @return загруженные грузовики в прежнем порядке, за которыми следуют дополнительные
+     * @throws InsufficientTrucksException если недостаточно грузовиков для размещения всех посылок
+     */
+    public List<Truck> addParcelsToLoadedTrucks(List<Parcel> parcelList, List<Truck> loadedTrucks,
+                                                List<String> trucksFromArgs) {
+        log.info("Начало догрузки. Упаковок: {}, загруженных грузовиков: {}", parcelList.size(), loadedTrucks.size());
+        parcelList.sort(Comparator.naturalOrder());
+
+        List<Truck> trucks = new ArrayList<>(loadedTrucks.size() + trucksFromArgs.size());
+        for (Truck loadedTruck : loadedTrucks) {
+            trucks.add(loadedTruck.snapshot());
+        }
+        for (String providedTruckSize : trucksFromArgs) {
+            trucks.add(createTruck(providedTruckSize));
+        }
+        placeParcels(parcelList, trucks, trucksFromArgs.isEmpty());
+
+        log.info("Догрузка завершена. Всего грузовиков: {}", trucks.size());
+        return trucks;
+    }
+
+    /**
+     * Добавляет посылки в несколько грузовиков по принципу наилучшего размещения.
+     *
+     * <p>
+     * Посылки сортируются так же, как в {@link #addParcelsToMultipleTrucks}, после чего каждая посылка
+     * размещается в грузовике с наименьшей свободной площадью, в котором она помещается.
+     * Грузовики хранятся в упорядоченном по свободной площади индексе, поэтому перебор начинается
+     * с самых заполненных грузовиков, в которых посылке хватает свободных клеток.
+     * Если размеры грузовиков не переданы, парк стандартных грузовиков формируется автоматически.
+     * </p>
+     *
+     * @param parcelList     список посылок для размещения
+     * @param trucksFromArgs список размеров грузовиков, предоставленных через аргументы
+     * @return список грузовиков с размещенными посылками
+     * @throws InsufficientTrucksException если недостаточно грузовиков для размещения всех посылок
+     * @throws InsufficientTrucksException если погрузка отклонена предварительной проверкой
+     */
+    public List<Truck> addParcelsToBestFitTrucks(List<Parcel> parcelList, List<String> trucksFromArgs) {
+        return addParcelsToBestFitTrucks(parcelList, trucksFromArgs, Comparator.naturalOrder());
+    }
+
+    /**
+     * Добавляет посылки в грузовики по принципу наилучшего размещения, предварительно упорядочив их указанным образом.
+     *
+     * @param parcelList     список посылок для размещения
+     * @param trucksFromArgs список размеров грузовиков, предоставленных через аргументы
+     * @param order          порядок, в котором размещаются посылки
+     * @return список грузовиков с размещенными посылками
+     * @throws InsufficientTrucksException если недостаточно грузовиков для размещения всех посылок
+     * @throws InsufficientTrucksException если погрузка отклонена предварительной проверкой
+     * @see #addParcelsToBestFitTrucks(List, List)
+     */
+    public List<Truck> addParcelsToBestFitTrucks(List<Parcel> parcelList, List<String> trucksFromArgs,
+                                                 Comparator<Parcel> order) {
+        log.info("Начало размещения упаковок по наилучшему грузовику. Всего упаковок: {}", parcelList.size());
+        parcelList.sort(order);
+
+        boolean isFleetProvisioned = trucksFromArgs.isEmpty();
+        List<Truck> trucks = new ArrayList<>();
+        if (isFleetProvisioned) {
+            trucks.addAll(provisionStandardTrucks(parcelList));
+        } else {
+            for (String providedTruckSize : trucksFromArgs) {
+                trucks.add(createTruck(providedTruckSize));
+            }
+            feasibilityValidator.validate(parcelList, trucks, parcelService::orientationsOf);
+        }
+
+        NavigableSet<TruckCapacity> capacities = new TreeSet<>(BY_FREE_CELLS);
+        for (int i = 0; i < trucks.size(); i++) {
+            capacities.add(new TruckCapacity(trucks.get(i).getFreeCells(), i));
+        }
+
+        for (Parcel parcel : parcelList) {
+            ensureNotInterrupted();
+            int truckIndex = probeBestFitTrucks(parcel, trucks, capacities);
+            if (truckIndex == NOT_PLACED) {
+                if (!isFleetProvisioned) {
+                    throw new InsufficientTrucksException("Не хватает указанных грузовиков для размещения всех посылок!");
+                }
+                truckIndex = placeInNewTruck(parcel, trucks);
+                capacities.add(new TruckCapacity(trucks.get(truckIndex).getFreeCells(), truckIndex));
+            }
+            log.info("Посылка {} размещена в грузовике {}.", parcel.getName(), truckIndex + 1);
         }
 
         log.info("Размещение завершено. Всего грузовиков: {}", trucks.size());
         return trucks;
     }
 
+    /**
+     * Добавляет посылки в наименьшее найденное количество грузовиков методом ветвей и границ.
+     *
+     * <p>
+     * Начальным решением служит результат {@link #addParcelsToMultipleTrucks}. Затем поиск пытается уложить
+     * все посылки в грузовики, число которых на один меньше, чем в лучшем известном решении, пока не будет
+     * достигнута нижняя оценка по площади, не будет доказано, что меньшего числа грузовиков недостаточно,
+     * или не истечёт отведённое время; в последнем случае возвращается лучшее найденное решение.
+     * При переданных размерах грузовиков для проверки каждого количества
+     * берутся самые большие по площади грузовики, а неиспользованные грузовики возвращаются пустыми.
+     * </p>
+     *
+     * @param parcelList     список посылок для размещения
+     * @param trucksFromArgs список размеров грузовиков, предоставленных через аргументы
+     * @param budget         время, отведённое на поиск
+     * @return список грузовиков с размещенными посылками
+     * @throws InsufficientTrucksException если погрузка отклонена предварительной проверкой
+     * @throws InsufficientTrucksException если перебор доказал, что посылки не помещаются в переданные грузовики
+     * @throws InsufficientTrucksException если за отведённое время не найдено ни одного размещения
+     */
+    public List<Truck> addParcelsWithBranchAndBound(List<Parcel> parcelList, List<String> trucksFromArgs, Duration budget) {
+        long deadlineNanos = System.nanoTime() + budget.toNanos();
+        boolean isFleetProvisioned = trucksFromArgs.isEmpty();
+        List<Truck> fleet = isFleetProvisioned
+                ? List.of()
+                : trucksFromArgs.stream().map(this::createTruck).toList();
+        try {
+            if (!isFleetProvisioned) {
+                feasibilityValidator.validate(parcelList, fleet, parcelService::orientationsOf);
+            }
+
+            List<Truck> best = null;
+            try {
+                best = addParcelsToMultipleTrucks(parcelList, false, trucksFromArgs);
+            } catch (InsufficientTrucksException e) {
+                if (isFleetProvisioned) {
+                    throw e;
+                }
+                log.info("Жадная упаковка не нашла размещения, ищем методом ветвей и границ: {}", e.getMessage());
+            }
+
+            if (isFleetProvisioned) {
+                fleet = emptyCopies(best);
+            }
+            int bestCount = best == null ? fleet.size() + NEXT_TRUCK_OFFSET : countUsedTrucks(best);
+            int lowerBound = areaLowerBound(parcelList, fleet);
+            log.info("Начальное решение: {} грузовиков, нижняя оценка по площади: {}.", bestCount, lowerBound);
+
+            BranchAndBoundPacker packer = new BranchAndBoundPacker(parcelService, truckPool, deadlineNanos);
+            for (int target = Math.min(bestCount - NEXT_TRUCK_OFFSET, fleet.size()); target >= lowerBound; target--) {
+                List<Integer> selected = selectLargestTrucks(fleet, target);
+                List<Truck> candidates = selected.stream().map(fleet::get).toList();
+                Optional<int[]> assignment = packer.search(parcelList, candidates);
+                if (assignment.isEmpty()) {
+                    log.info(packer.isTimedOut()
+                            ? "Время поиска истекло при проверке {} грузовиков."
+                            : "Посылки не помещаются в {} грузовиков.", target);
+                    break;
+                }
+                if (best != null) {
+                    releaseTrucks(best);
+                }
+                best = emptyCopies(isFleetProvisioned ? candidates : fleet);
+                List<Truck> targets = isFleetProvisioned ? best : selected.stream().map(best::get).toList();
+                packer.apply(parcelList, targets, assignment.get());
+                bestCount = target;
+                log.info("Найдено размещение в {} грузовиках.", target);
+            }
+
+            if (best == null) {
+                throw new InsufficientTrucksException(packer.isTimedOut()
+                        ? "Не удалось найти размещение всех посылок за отведённое время."
+                        : "Посылки не помещаются в переданные грузовики: перебор не нашёл ни одного размещения.");
+            }
+            log.info("Оптимизация завершена. Использовано грузовиков: {}", bestCount);
+            return best;
+        } finally {
+            releaseTrucks(fleet);
+        }
+    }
+
+    /**
+     * Улучшает распределение посылок по уже упакованным грузовикам локальным поиском в пределах отведённого времени.
+     *
+     * <p>
+     * Посылки переносятся и обмениваются между грузовиками так, чтобы опустошить наименее заполненные грузовики.
+     * Поиск завершается досрочно, если занятых грузовиков меньше двух или улучшения долго не находятся,
+     * и возвращает лучшее найденное распределение, поэтому количество занятых грузовиков не увеличивается.
+     * </p>
+     *
+     * @param trucks           упакованные грузовики; грузовики, не вошедшие в результат, возвращаются в пул
+     * @param budget           время, отведённое на улучшение
+     * @param dropEmptyTrucks  флаг удаления опустошённых грузовиков из результата;
+     *                         используется, когда парк сформирован автоматически
+     * @return грузовики с улучшенным размещением посылок
+     */
+    public List<Truck> improveFleet(List<Truck> trucks, Duration budget, boolean dropEmptyTrucks) {
+        long startNanos = System.nanoTime();
+        int usedBefore = countUsedTrucks(trucks);
+        List<Truck> improved = new FleetImprover(parcelService, truckPool, startNanos, startNanos + budget.toNanos())
+                .improve(trucks);
+        if (dropEmptyTrucks) {
+            releaseTrucks(improved.stream().filter(truck -> truck.getParcels().isEmpty()).toList());
+            improved.removeIf(truck -> truck.getParcels().isEmpty());
+        }
+        log.info("Улучшение завершено: было занято {} грузовиков, стало {}.", usedBefore, countUsedTrucks(improved));
+        return improved;
+    }
+
+    /**
+     * Вычисляет наименьшее количество грузовиков из парка, суммарной площади которых хватает на все посылки.
+     *
+     * @param parcels список посылок
+     * @param fleet   доступные грузовики
+     * @return нижняя оценка количества грузовиков
+     */
+    private int areaLowerBound(List<Parcel> parcels, List<Truck> fleet) {
+        long parcelsArea = parcels.stream().mapToLong(parcel -> parcel.getCompiledShape().getFilledCells()).sum();
+        List<Integer> areas = new ArrayList<>();
+        for (Truck truck : fleet) {
+            areas.add(truck.getWidth() * truck.getHeight());
+        }
+        areas.sort(Collections.reverseOrder());
+
+        int count = 0;
+        long fleetArea = 0;
+        while (count < areas.size() && fleetArea < parcelsArea) {
+            fleetArea += areas.get(count);
+            count++;
+        }
+        return Math.max(MIN_FLEET_SIZE, count);
+    }
+
+    /**
+     * Выбирает индексы указанного количества самых больших по площади грузовиков в исходном порядке.
+     *
+     * @param fleet доступные грузовики
+     * @param count количество грузовиков
+     * @return индексы выбранных грузовиков по возрастанию
+     */
+    private List<Integer> selectLargestTrucks(List<Truck> fleet, int count) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < fleet.size(); i++) {
+            indices.add(i);
+        }
+        indices.sort(Comparator.comparingInt((Integer i) -> fleet.get(i).getWidth() * fleet.get(i).getHeight())
+                .reversed()
+                .thenComparingInt(i -> i));
+        List<Integer> selected = new ArrayList<>(indices.subList(0, count));
+        Collections.sort(selected);
+        return selected;
+    }
+
+    private int countUsedTrucks(List<Truck> trucks) {
+        return (int) trucks.stream().filter(truck -> !truck.getParcels().isEmpty()).count();
+    }
+
+    private List<Truck> emptyCopies(List<Truck> trucks) {
+        List<Truck> copies = new ArrayList<>();
+        for (Truck truck : trucks) {
+            copies.add(newTruck(truck.getWidth(), truck.getHeight()));
+        }
+        return copies;
+    }
+
+    /**
+     * Возвращает грузовики в пул, если он задан.
+     *
+     * @param trucks грузовики, на которые после вызова больше нет ссылок
+     */
+    public void releaseTrucks(Collection<Truck> trucks) {
+        if (truckPool != null) {
+            truckPool.releaseAll(trucks);
+        }
+    }
+
+    /**
+     * Выдаёт пустой грузовик из пула, если он задан, или создаёт новый.
+     *
+     * @param width  ширина грузовика
+     * @param height высота грузовика
+     * @return пустой грузовик
+     */
+    private Truck newTruck(int width, int height) {
+        return truckPool == null ? new Truck(width, height) : truckPool.acquire(width, height);
+    }
+
+    /**
+     * Размещает посылку в грузовике с наименьшей свободной площадью, в котором она помещается.
+     * <p>
+     * Перебираются только грузовики, свободных клеток в которых не меньше, чем занимает посылка,
+     * в порядке возрастания свободной площади. После размещения запись грузовика в индексе обновляется.
+     * </p>
+     *
+     * @param parcel     посылка для размещения
+     * @param trucks     список грузовиков
+     * @param capacities индекс грузовиков, упорядоченный по количеству свободных клеток
+     * @return индекс грузовика, в который размещена посылка, или {@code NOT_PLACED}
+     */
+    private int probeBestFitTrucks(Parcel parcel, List<Truck> trucks, NavigableSet<TruckCapacity> capacities) {
+        TruckCapacity smallestSuitable = new TruckCapacity(parcel.getCompiledShape().getFilledCells(), LOWEST_TRUCK_INDEX);
+        for (TruckCapacity capacity : capacities.tailSet(smallestSuitable, true)) {
+            Truck truck = trucks.get(capacity.truckIndex());
+            if (parcelService.tryPack(truck, parcel)) {
+                capacities.remove(capacity);
+                capacities.add(new TruckCapacity(truck.getFreeCells(), capacity.truckIndex()));
+                return capacity.truckIndex();
+            }
+        }
+        return NOT_PLACED;
+    }
+
     /**
      * Обрабатывает случай, когда список грузовиков пуст.
      *
      * <p>
-     * Создает стандартный грузовик, добавляет его в список грузовиков и размещает посылки.
+     * Создает минимально необходимое по площади количество стандартных грузовиков и размещает посылки,
+     * добавляя новый стандартный грузовик каждый раз, когда посылка не помещается в имеющиеся.
      * </p>
      *
      * @param trucks             список грузовиков для добавления
      * @param parcelList         список посылок для размещения
      * @param isEvenAlgorithm    флаг, указывающий использовать ли равномерный алгоритм
-     * @throws InsufficientTrucksException если стандартный размер грузовика не задан
-     * @throws InsufficientTrucksException если размещение посылок невозможно
+     * @throws InsufficientTrucksException если посылка не помещается даже в пустой стандартный грузовик
      */
     private void handleEmptyTrucksList(List<Truck> trucks, List<Parcel> parcelList, Boolean isEvenAlgorithm) {
-        log.info("Массив грузовиков пуст. Используем стандартные размеры {} и плотное размещение.", STANDARD_TRUCK_SIZE);
-        Truck standardTruck = createTruck(STANDARD_TRUCK_SIZE);
-        trucks.add(standardTruck);
+        log.info("Массив грузовиков пуст. Формируем парк из стандартных грузовиков {}.", STANDARD_TRUCK_SIZE);
+        trucks.addAll(provisionStandardTrucks(parcelList));
 
         if (isEvenAlgorithm) {
-            distributeParcelsEvenly(parcelList, trucks);
+            distributeParcelsEvenly(parcelList, trucks, true);
         } else {
-            placeParcels(parcelList, trucks);
+            placeParcels(parcelList, trucks, true);
+        }
+
+        log.warn("Аргумент с грузовиками пуст, погрузка выполнена в {} стандартных грузовиков.", trucks.size());
+    }
+
+    /**
+     * Создает стандартные грузовики в количестве, равном нижней оценке по суммарной площади посылок.
+     *
+     * @param parcels список посылок для размещения
+     * @return список пустых стандартных грузовиков, не меньше одного
+     */
+    private List<Truck> provisionStandardTrucks(List<Parcel> parcels) {
+        List<Truck> trucks = new ArrayList<>();
+        trucks.add(createTruck(STANDARD_TRUCK_SIZE));
+        feasibilityValidator.validateDimensions(parcels, trucks, parcelService::orientationsOf);
+
+        int truckArea = trucks.getFirst().getWidth() * trucks.getFirst().getHeight();
+        int parcelsArea = parcels.stream()
+                .mapToInt(parcel -> parcel.getCompiledShape().getFilledCells())
+                .sum();
+        int lowerBound = Math.max(MIN_FLEET_SIZE, (parcelsArea + truckArea - 1) / truckArea);
+
+        while (trucks.size() < lowerBound) {
+            trucks.add(createTruck(STANDARD_TRUCK_SIZE));
         }
+        log.info("Нижняя оценка парка по площади посылок: {} грузовиков.", lowerBound);
+        return trucks;
+    }
 
-        log.warn("Аргумент с грузовиками пуст, погрузка выполнена с использованием стандартных грузовиков.");
+    /**
+     * Добавляет в парк новый стандартный грузовик и размещает в нём посылку.
+     *
+     * @param parcel посылка для размещения
+     * @param trucks список грузовиков, в который добавляется новый грузовик
+     * @return индекс нового грузовика
+     * @throws InsufficientTrucksException если посылка не помещается даже в пустой стандартный грузовик
+     */
+    private int placeInNewTruck(Parcel parcel, List<Truck> trucks) {
+        Truck truck = createTruck(STANDARD_TRUCK_SIZE);
+        if (!parcelService.tryPack(truck, parcel)) {
+            throw new InsufficientTrucksException("Посылка " + parcel.getName()
+                    + " не помещается в стандартный грузовик " + STANDARD_TRUCK_SIZE + ".");
+        }
+        trucks.add(truck);
+        log.info("Добавлен грузовик {} для посылки {}.", trucks.size(), parcel.getName());
+        return trucks.size() - 1;
     }
 
     /**
      * Равномерно распределяет посылки по грузовикам.
      *
      * <p>
-     * Посылки распределяются по всем доступным грузовикам последовательно,
-     * обеспечивая равномерное распределение нагрузки.
+     * Каждая посылка размещается в наименее загруженном грузовике — с наименьшим количеством занятых клеток.
+     * Грузовики хранятся в куче по загрузке; если посылка не помещается, она пробуется в следующем
+     * по загрузке грузовике. При равной загрузке выбирается грузовик с меньшим индексом.
      * </p>
      *
      * @param parcels список посылок для распределения
@@ -125,59 +559,199 @@ public class TruckService {
      * @throws InsufficientTrucksException если недостаточно грузовиков для размещения всех посылок
      */
     public void distributeParcelsEvenly(List<Parcel> parcels, List<Truck> trucks) {
+        distributeParcelsEvenly(parcels, trucks, false);
+    }
+
+    /**
+     * Равномерно распределяет посылки по грузовикам, при необходимости добавляя стандартные грузовики.
+     *
+     * @param parcels    список посылок для распределения
+     * @param trucks     список грузовиков, в которые будут размещены посылки
+     * @param growFleet  флаг, разрешающий добавлять грузовик, если посылка не помещается в имеющиеся
+     * @throws InsufficientTrucksException если список грузовиков пуст
+     * @throws InsufficientTrucksException если недостаточно грузовиков для размещения всех посылок
+     */
+    private void distributeParcelsEvenly(List<Parcel> parcels, List<Truck> trucks, boolean growFleet) {
         if (trucks.isEmpty()) {
             throw new InsufficientTrucksException("Невозможно распределить посылки: нет грузовиков.");
         }
-        int totalParcels = parcels.size();
-        int numberOfTrucks = trucks.size();
-        int currentTruckIndex = 0;
+        log.info("Распределяем {} посылок на {} грузовиков.", parcels.size(), trucks.size());
 
-        log.info("Распределяем {} посылок на {} грузовиков.", totalParcels, numberOfTrucks);
+        PriorityQueue<TruckLoad> loads = new PriorityQueue<>(trucks.size(), BY_OCCUPIED_CELLS);
+        for (int i = 0; i < trucks.size(); i++) {
+            loads.add(TruckLoad.of(trucks.get(i), i));
+        }
 
         for (Parcel nextParcel : parcels) {
-            boolean isPlaced = false;
-            for (int i = 0; i < numberOfTrucks; i++) {
-                int truckIndex = (currentTruckIndex + i) % numberOfTrucks;
-                Truck currentTruck = trucks.get(truckIndex);
-                if (parcelService.tryPack(currentTruck, nextParcel)) {
-                    log.info("Посылка {} успешно размещена в грузовике {}.", nextParcel.getName(), truckIndex + 1);
-                    isPlaced = true;
-                    currentTruckIndex = (truckIndex + NEXT_TRUCK_OFFSET) % numberOfTrucks;
-                    break;
+            int truckIndex = probeLeastLoadedTrucks(nextParcel, trucks, loads);
+            if (truckIndex == NOT_PLACED) {
+                if (!growFleet) {
+                    throw new InsufficientTrucksException("Не хватает указанных грузовиков для размещения всех посылок!");
                 }
+                truckIndex = placeInNewTruck(nextParcel, trucks);
+                loads.add(TruckLoad.of(trucks.get(truckIndex), truckIndex));
             }
-            if (!isPlaced) {
-                throw new InsufficientTrucksException("Не хватает указанных грузовиков для размещения всех посылок!");
-            }
+            log.info("Посылка {} успешно размещена в грузовике {}.", nextParcel.getName(), truckIndex + 1);
         }
         log.info("Все посылки успешно распределены по грузовикам.");
     }
 
+    /**
+     * Размещает посылку в наименее загруженном грузовике, в котором она помещается.
+     *
+     * <p>
+     * Грузовики извлекаются из кучи по возрастанию загрузки до первого успешного размещения.
+     * Все извлечённые грузовики возвращаются в кучу, грузовик с посылкой — с новой загрузкой,
+     * поэтому каждый грузовик всегда представлен в куче ровно одной актуальной записью.
+     * </p>
+     *
+     * @param parcel посылка для размещения
+     * @param trucks список грузовиков
+     * @param loads  куча загрузки грузовиков
+     * @return индекс грузовика, в который размещена посылка, или {@code NOT_PLACED}
+     */
+    private int probeLeastLoadedTrucks(Parcel parcel, List<Truck> trucks, PriorityQueue<TruckLoad> loads) {
+        List<TruckLoad> probed = new ArrayList<>();
+        int placedIndex = NOT_PLACED;
+        while (placedIndex == NOT_PLACED && !loads.isEmpty()) {
+            TruckLoad load = loads.poll();
+            Truck truck = trucks.get(load.truckIndex());
+            if (hasEnoughFreeCells(truck, parcel) && parcelService.tryPack(truck, parcel)) {
+                placedIndex = load.truckIndex();
+                probed.add(TruckLoad.of(truck, placedIndex));
+            } else {
+                probed.add(load);
+            }
+        }
+        loads.addAll(probed);
+        return placedIndex;
+    }
+
     /**
      * Размещает посылки в грузовиках по порядку.
      *
      * <p>
      * Для каждой посылки пытается найти подходящий грузовик и разместить её.
      * Если посылка не помещается, предпринимается повторная попытка размещения.
+     * Подряд идущие посылки одинаковой формы размещаются серией методом {@link #placeParcelRun}.
      * </p>
      *
      * @param parcelList список посылок для размещения
      * @param trucks     список грузовиков, в которые будут размещены посылки
+     * @param growFleet  флаг, разрешающий добавлять грузовик, если посылка не помещается в имеющиеся
+     * @throws InsufficientTrucksException если недостаточно грузовиков для размещения всех посылок
+     */
+    private void placeParcels(List<Parcel> parcelList, List<Truck> trucks, boolean growFleet) {
+        int runStart = 0;
+        while (runStart < parcelList.size()) {
+            ensureNotInterrupted();
+            int runEnd = findRunEnd(parcelList, runStart);
+            if (runEnd - runStart > SINGLE_PARCEL_RUN) {
+                placeParcelRun(parcelList.subList(runStart, runEnd), trucks, growFleet);
+            } else {
+                placeParcel(parcelList.get(runStart), trucks, growFleet);
+            }
+            runStart = runEnd;
+        }
+    }
+
+    /**
+     * Прерывает упаковку, если прерван поток, в котором она выполняется,
+     * например при отмене эвристики портфельного алгоритма по истечении времени.
+     *
+     * @throws CancellationException если поток прерван
+     */
+    private static void ensureNotInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Упаковка прервана.");
+        }
+    }
+
+    /**
+     * Находит конец серии подряд идущих посылок одинаковой формы.
+     *
+     * @param parcelList отсортированный список посылок
+     * @param runStart   индекс первой посылки серии
+     * @return индекс первой посылки после серии
+     */
+    private int findRunEnd(List<Parcel> parcelList, int runStart) {
+        List<String> shape = parcelList.get(runStart).getShape();
+        int runEnd = runStart + 1;
+        while (runEnd < parcelList.size() && parcelList.get(runEnd).getShape().equals(shape)) {
+            runEnd++;
+        }
+        return runEnd;
+    }
+
+    /**
+     * Размещает серию посылок одинаковой формы за один проход по грузовикам.
+     *
+     * <p>
+     * Грузовик, в который не поместилась копия, не изменится до конца серии, поэтому следующие копии
+     * начинают перебор с грузовика, принявшего предыдущую копию, а внутри грузовика продолжают
+     * полный перебор позиций с границы, на которой он остановился. Результат совпадает с поштучным размещением.
+     * </p>
+     *
+     * @param run       посылки одинаковой формы
+     * @param trucks    список грузовиков, в которые будут размещены посылки
+     * @param growFleet флаг, разрешающий добавлять грузовик, если копия не помещается в имеющиеся
      * @throws InsufficientTrucksException если недостаточно грузовиков для размещения всех посылок
      */
-    private void placeParcels(List<Parcel> parcelList, List<Truck> trucks) {
-        for (Parcel providedParcel : parcelList) {
-            log.info("Пытаемся разместить упаковку с ID {} и именем {}.", providedParcel.getName(), providedParcel.getName());
-            boolean isPlaced = attemptToPlaceParcel(providedParcel, trucks);
+    private void placeParcelRun(List<Parcel> run, List<Truck> trucks, boolean growFleet) {
+        log.info("Размещаем серию из {} упаковок одинаковой формы, первая: {}.", run.size(), run.getFirst().getName());
+        int truckIndex = 0;
+        ScanCursor cursor = new ScanCursor();
 
-            if (!isPlaced) {
-                log.info("Упаковка с ID {} не поместилась. Повторная попытка размещения в существующих грузовиках...", providedParcel.getName());
-                isPlaced = retryToPlaceParcel(providedParcel, trucks);
+        for (Parcel parcel : run) {
+            ensureNotInterrupted();
+            while (truckIndex < trucks.size() && !tryPackNextCopy(trucks.get(truckIndex), parcel, cursor)) {
+                truckIndex++;
+                cursor = new ScanCursor();
             }
+            if (truckIndex == trucks.size()) {
+                if (!growFleet) {
+                    throw new InsufficientTrucksException("Не хватает указанных грузовиков для размещения всех посылок!");
+                }
+                truckIndex = placeInNewTruck(parcel, trucks);
+            }
+        }
+        log.info("Серия размещена, последний использованный грузовик: {}.", truckIndex + 1);
+    }
+
+    /**
+     * Пытается разместить очередную копию серии в грузовике.
+     *
+     * @param truck  грузовик
+     * @param parcel посылка для размещения
+     * @param cursor граница перебора позиций для серии в этом грузовике
+     * @return true если размещение удалось, иначе false
+     */
+    private boolean tryPackNextCopy(Truck truck, Parcel parcel, ScanCursor cursor) {
+        return hasEnoughFreeCells(truck, parcel) && parcelService.tryPackNextCopy(truck, parcel, cursor);
+    }
+
+    /**
+     * Размещает одну посылку в первом подходящем грузовике.
+     *
+     * @param providedParcel посылка для размещения
+     * @param trucks         список грузовиков
+     * @param growFleet      флаг, разрешающий добавлять грузовик, если посылка не помещается в имеющиеся
+     * @throws InsufficientTrucksException если посылка не поместилась ни в один грузовик
+     */
+    private void placeParcel(Parcel providedParcel, List<Truck> trucks, boolean growFleet) {
+        log.info("Пытаемся разместить упаковку с ID {} и именем {}.", providedParcel.getName(), providedParcel.getName());
+        boolean isPlaced = attemptToPlaceParcel(providedParcel, trucks);
+
+        if (!isPlaced) {
+            log.info("Упаковка с ID {} не поместилась. Повторная попытка размещения в существующих грузовиках...", providedParcel.getName());
+            isPlaced = retryToPlaceParcel(providedParcel, trucks);
+        }
 
-            if (!isPlaced) {
+        if (!isPlaced) {
+            if (!growFleet) {
                 throw new InsufficientTrucksException("Не хватает указанных грузовиков для размещения всех посылок!");
             }
+            placeInNewTruck(providedParcel, trucks);
         }
     }
 
@@ -189,15 +763,25 @@ public class TruckService {
      * @return true если размещение удалось, иначе false
      */
     private boolean attemptToPlaceParcel(Parcel parcel, List<Truck> trucks) {
-        for (Truck truck : trucks) {
-            if (parcelService.tryPack(truck, parcel)) {
-                log.info("Упаковка с ID {} успешно размещена в существующем грузовике.", parcel.getName());
-                return true;
-            }
+        if (probeTrucks(parcel, trucks, 0) != NOT_PLACED) {
+            log.info("Упаковка с ID {} успешно размещена в существующем грузовике.", parcel.getName());
+            return true;
         }
         return false;
     }
 
+    /**
+     * Проверяет, что в грузовике осталось не меньше свободных клеток, чем занимает посылка.
+     * Почти заполненные грузовики отсеиваются без перебора позиций.
+     *
+     * @param truck  грузовик
+     * @param parcel посылка для размещения
+     * @return true если свободной площади достаточно, иначе false
+     */
+    private boolean hasEnoughFreeCells(Truck truck, Parcel parcel) {
+        return truck.getFreeCells() >= parcel.getCompiledShape().getFilledCells();
+    }
+
     /**
      * Пытается повторно разместить посылку в одном из грузовиков.
      *
@@ -206,48 +790,100 @@ public class TruckService {
      * @return true если размещение удалось, иначе false
      */
     private boolean retryToPlaceParcel(Parcel parcel, List<Truck> trucks) {
-        for (Truck truck : trucks) {
-            if (parcelService.tryPack(truck, parcel)) {
-                log.info("Упаковка с ID {} размещена после повторной проверки.", parcel.getName());
-                return true;
-            }
+        if (probeTrucks(parcel, trucks, 0) != NOT_PLACED) {
+            log.info("Упаковка с ID {} размещена после повторной проверки.", parcel.getName());
+            return true;
         }
         return false;
     }
 
     /**
-     * Создает новый грузовик на основе предоставленного размера.
+     * Размещает посылку в первом подходящем грузовике, перебирая грузовики по кругу
+     * начиная с указанного индекса.
      *
+     * @param parcel          посылка для размещения
+     * @param trucks          список грузовиков
+     * @param firstTruckIndex индекс грузовика, с которого начинается перебор
+     * @return индекс грузовика, в который размещена посылка, или {@code NOT_PLACED}
+     */
+    private int probeTrucks(Parcel parcel, List<Truck> trucks, int firstTruckIndex) {
+        if (parallelProbing && trucks.size() >= parallelProbingMinTrucks) {
+            return probeTrucksInParallel(parcel, trucks, firstTruckIndex);
+        }
+        int numberOfTrucks = trucks.size();
+        for (int i = 0; i < numberOfTrucks; i++) {
+            int truckIndex = (firstTruckIndex + i) % numberOfTrucks;
+            Truck truck = trucks.get(truckIndex);
+            if (hasEnoughFreeCells(truck, parcel) && parcelService.tryPack(truck, parcel)) {
+                return truckIndex;
+            }
+        }
+        return NOT_PLACED;
+    }
+
+    /**
+     * Ищет позиции для посылки во всех грузовиках параллельно и размещает её
+     * в первом по порядку перебора грузовике, где позиция нашлась.
      * <p>
-     * Размеры грузовика передаются в виде строки, разделенной символом {@code TRUCK_SIZE_SPLITTER}.
+     * Поиск позиций только читает грузовики, а размещение выполняется в вызывающем потоке
+     * после завершения поиска, поэтому грузовики не изменяются конкурентно.
      * </p>
      *
+     * @param parcel          посылка для размещения
+     * @param trucks          список грузовиков
+     * @param firstTruckIndex индекс грузовика, с которого начинается перебор
+     * @return индекс грузовика, в который размещена посылка, или {@code NOT_PLACED}
+     */
+    private int probeTrucksInParallel(Parcel parcel, List<Truck> trucks, int firstTruckIndex) {
+        int numberOfTrucks = trucks.size();
+        TruckPosition found = IntStream.range(0, numberOfTrucks)
+                .parallel()
+                .map(i -> (firstTruckIndex + i) % numberOfTrucks)
+                .mapToObj(truckIndex -> findTruckPosition(parcel, trucks, truckIndex))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+
+        if (found == null) {
+            return NOT_PLACED;
+        }
+        ParcelPlacement placement = found.placement();
+        parcelService.placeParcel(trucks.get(found.truckIndex()), parcel, placement.shape(), placement.x(), placement.y());
+        return found.truckIndex();
+    }
+
+    /**
+     * Ищет позицию для посылки в одном грузовике без изменения его состояния.
+     *
+     * @param parcel     посылка для размещения
+     * @param trucks     список грузовиков
+     * @param truckIndex индекс проверяемого грузовика
+     * @return найденные позиция и ориентация вместе с индексом грузовика или {@code null}
+     */
+    private TruckPosition findTruckPosition(Parcel parcel, List<Truck> trucks, int truckIndex) {
+        Truck truck = trucks.get(truckIndex);
+        if (!hasEnoughFreeCells(truck, parcel)) {
+            return null;
+        }
+        return parcelService.findPosition(truck, parcel)
+                .map(placement -> new TruckPosition(truckIndex, placement))
+                .orElse(null);
+    }
+
+    /**
+     * Создает новый грузовик на основе предоставленного размера.
+     *
      * @param providedTruckSize строка, содержащая размеры грузовика в формате {@code ширинаxвысота}
      * @return новый экземпляр {@link Truck} с указанными размерами
      * @throws IllegalArgumentException если формат размера грузовика некорректен или размеры не положительные
      * @throws NumberFormatException    если размеры грузовика не являются числами
+     * @see TruckSize#parse(String)
      */
     private Truck createTruck(String providedTruckSize) {
-        String[] splitSize = providedTruckSize.split(TRUCK_SIZE_SPLITTER);
-
-        if (splitSize.length != EXPECTED_SIZE_PARTS) {
-            throw new IllegalArgumentException(INVALID_TRUCK_SIZE_FORMAT_MESSAGE);
-        }
-
-        try {
-            int width = Integer.parseInt(splitSize[WIDTH_INDEX].trim());
-            int height = Integer.parseInt(splitSize[HEIGHT_INDEX].trim());
-
-            if (width <= 0 || height <= 0) {
-                throw new IllegalArgumentException(NEGATIVE_TRUCK_SIZE_MESSAGE);
-            }
-
-            Truck currentTruck = new Truck(width, height);
-            log.info("Создан грузовик размером {}x{}.", width, height);
-            return currentTruck;
-        } catch (NumberFormatException e) {
-            throw new NumberFormatException(NON_NUMERIC_TRUCK_SIZE_MESSAGE);
-        }
+        TruckSize size = TruckSize.parse(providedTruckSize);
+        Truck currentTruck = newTruck(size.width(), size.height());
+        log.info("Создан грузовик размером {}.", providedTruckSize);
+        return currentTruck;
     }
 
     /**
@@ -303,4 +939,35 @@ public class TruckService {
         }
         return trucks;
     }
+
+    /**
+     * Позиция и ориентация посылки, найденные в конкретном грузовике.
+     *
+     * @param truckIndex индекс грузовика
+     * @param placement  найденное размещение посылки
+     */
+    private record TruckPosition(int truckIndex, ParcelPlacement placement) {
+    }
+
+    /**
+     * Запись индекса грузовиков для алгоритма наилучшего размещения.
+     *
+     * @param freeCells  количество свободных клеток грузовика на момент добавления в индекс
+     * @param truckIndex индекс грузовика
+     */
+    private record TruckCapacity(int freeCells, int truckIndex) {
+    }
+
+    /**
+     * Запись кучи загрузки грузовиков для равномерного распределения.
+     *
+     * @param occupiedCells количество занятых клеток грузовика на момент добавления в кучу
+     * @param truckIndex    индекс грузовика
+     */
+    private record TruckLoad(int occupiedCells, int truckIndex) {
+
+        static TruckLoad of(Truck truck, int truckIndex) {
+            return new TruckLoad(truck.getWidth() * truck.getHeight() - truck.getFreeCells(), truckIndex);
+        }
+    }
 }
@@ -3,23 +3,29 @@ package org.hofftech.parking.service.command.impl;
 import lombok.RequiredArgsConstructor;
 import org.hofftech.parking.exception.ParcelLoadingException;
 import org.hofftech.parking.exception.UserNotProvidedException;
+import org.hofftech.parking.model.LoadRequest;
 import org.hofftech.parking.model.ParsedCommand;
 import org.hofftech.parking.model.enums.ParcelSourceType;
+import org.hofftech.parking.service.FormatterService;
 import org.hofftech.parking.util.FileProcessingUtil;
 import org.hofftech.parking.service.command.UserCommand;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
 
 /**
  * Класс реализации пользовательской команды для загрузки посылок.
+ * С флагом {@code +dryRun} выполняется пробная погрузка: возвращается план без создания заказа и сохранения.
+ * С флагом {@code +topUp} посылки догружаются в грузовики, сохранённые предыдущей погрузкой в файл.
  */
 @RequiredArgsConstructor
 public class LoadUserCommand implements UserCommand {
 
     private final FileProcessingUtil fileProcessingUtil;
+    private final FormatterService formatterService;
 
     /**
      * Выполняет команду загрузки посылок на основе переданной команды.
@@ -68,6 +74,28 @@ public class LoadUserCommand implements UserCommand {
         return new ArrayList<>();
     }
 
+    /**
+     * Парсит время поиска оптимизирующего и портфельного алгоритмов в миллисекундах.
+     *
+     * @param budgetText строка с количеством миллисекунд
+     * @return время поиска или {@code null}, если оно не указано
+     * @throws IllegalArgumentException если время указано некорректно
+     */
+    private Duration parseBudget(String budgetText) {
+        if (budgetText == null || budgetText.isBlank()) {
+            return null;
+        }
+        try {
+            long millis = Long.parseLong(budgetText.trim());
+            if (millis <= 0) {
+                throw new IllegalArgumentException("Время поиска должно быть положительным числом миллисекунд.");
+            }
+            return Duration.ofMillis(millis);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Время поиска должно быть указано в миллисекундах: " + budgetText);
+        }
+    }
+
     /**
      * Определяет тип источника посылок на основе команды.
      *
@@ -132,15 +160,21 @@ public class LoadUserCommand implements UserCommand {
      * @return результат обработки посылок
      */
     private String processParcelsFromText(ParsedCommand command, List<String> trucksFromArgs, String user) {
-        return fileProcessingUtil.process(
+        return load(command, new LoadRequest(
                 null, // Path не требуется
                 command.getParcelsText(),
                 trucksFromArgs,
                 command.isUseEasyAlgorithm(),
                 command.isSaveToFile(),
                 command.isUseEvenAlgorithm(),
+                command.isUseBestFitAlgorithm(),
+                command.isUseOptimalAlgorithm(),
+                command.isUsePortfolioAlgorithm(),
+                command.isUseImprovement(),
+                command.isUseRotation(),
+                parseBudget(command.getBudget()),
                 user
-        );
+        ));
     }
 
     /**
@@ -152,14 +186,41 @@ public class LoadUserCommand implements UserCommand {
      * @return результат обработки посылок
      */
     private String processParcelsFromFile(ParsedCommand command, List<String> trucksFromArgs, String user) {
-        return fileProcessingUtil.process(
+        return load(command, new LoadRequest(
                 Path.of(command.getParcelsFile()),
                 null, // Текст не требуется
                 trucksFromArgs,
                 command.isUseEasyAlgorithm(),
                 command.isSaveToFile(),
                 command.isUseEvenAlgorithm(),
+                command.isUseBestFitAlgorithm(),
+                command.isUseOptimalAlgorithm(),
+                command.isUsePortfolioAlgorithm(),
+                command.isUseImprovement(),
+                command.isUseRotation(),
+                parseBudget(command.getBudget()),
                 user
-        );
+        ));
+    }
+
+    /**
+     * Выполняет погрузку, догрузку в сохранённые грузовики или, если указан флаг пробной погрузки, возвращает её план.
+     *
+     * @param command объект с параметрами команды
+     * @param request запрос на погрузку
+     * @return результат погрузки или план пробной погрузки
+     * @throws IllegalArgumentException если одновременно указаны пробная погрузка и догрузка
+     */
+    private String load(ParsedCommand command, LoadRequest request) {
+        if (command.isDryRun() && command.isTopUp()) {
+            throw new IllegalArgumentException("Пробная погрузка и догрузка не могут быть указаны одновременно.");
+        }
+        if (command.isTopUp()) {
+            return fileProcessingUtil.topUp(request);
+        }
+        if (command.isDryRun()) {
+            return formatterService.formatPackingPlan(fileProcessingUtil.plan(request));
+        }
+        return fileProcessingUtil.process(request);
     }
 }
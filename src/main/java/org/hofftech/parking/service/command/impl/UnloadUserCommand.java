@@ -11,10 +11,15 @@ import org.hofftech.parking.service.json.JsonProcessingService;
 import org.hofftech.parking.service.command.UserCommand;
 
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 /**
- * Класс реализации пользовательской команды для создания посылки.
+ * Класс реализации пользовательской команды для разгрузки грузовиков из JSON-файла.
+ * <p>
+ * Без параметра {@code +parcelsText} разгружаются все грузовики файла. С ним выгружаются только посылки
+ * с перечисленными через запятую именами, а оставшаяся погрузка записывается обратно в тот же файл.
+ * </p>
  */
 @RequiredArgsConstructor
 public class UnloadUserCommand implements UserCommand {
@@ -23,8 +28,9 @@ public class UnloadUserCommand implements UserCommand {
     private final FileSavingService fileSavingService;
 
     private static final String OUTPUT_FILE_PATH = "out/in.txt";
+    private static final String PARCELS_SPLITTER = ",";
     /**
-     * Выполняет команду создания посылки на основе переданной команды.
+     * Выполняет команду разгрузки на основе переданной команды.
      */
     @Override
     public String execute(ParsedCommand command) {
@@ -40,13 +46,34 @@ public class UnloadUserCommand implements UserCommand {
             throw new UserNotProvidedException("Пользователь должен быть передан для команды UNLOAD");
         }
 
+        String parcelsText = command.getParcelsText();
+        boolean isPartialUnload = parcelsText != null && !parcelsText.isBlank();
+
         try {
-            List<Map<String, Long>> parcelsCountMap = jsonProcessingService.importParcelsFromJson(inFile,
-                    isWithCount, user);
+            List<Map<String, Long>> parcelsCountMap = isPartialUnload
+                    ? jsonProcessingService.unloadParcelsFromJson(inFile, parseParcelNames(parcelsText),
+                    isWithCount, user)
+                    : jsonProcessingService.importParcelsFromJson(inFile, isWithCount, user);
             fileSavingService.saveParcels(parcelsCountMap, OUTPUT_FILE_PATH, isWithCount);
+            if (isPartialUnload) {
+                return "Посылки выгружены, оставшаяся погрузка сохранена в " + inFile;
+            }
             return "Файл успешно импортирован из JSON: " + inFile;
         } catch (FileSavingException e) {
             throw new FileSavingException("Ошибка при сохранении файла: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Парсит имена выгружаемых посылок.
+     *
+     * @param parcelsText строка с именами посылок, разделенными запятыми
+     * @return список имён без пустых элементов
+     */
+    private List<String> parseParcelNames(String parcelsText) {
+        return Arrays.stream(parcelsText.split(PARCELS_SPLITTER))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+    }
 }
\ No newline at end of file
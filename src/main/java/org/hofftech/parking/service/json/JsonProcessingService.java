@@ -2,21 +2,30 @@ package org.hofftech.parking.service.json;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.hofftech.parking.exception.FileCreationException;
 import org.hofftech.parking.exception.InputFileException;
 import org.hofftech.parking.exception.JsonMappingException;
 import org.hofftech.parking.exception.JsonWriteException;
 import org.hofftech.parking.exception.MissingStartPositionException;
+import org.hofftech.parking.exception.ParcelLoadingException;
+import org.hofftech.parking.exception.ParcelNotFoundException;
+import org.hofftech.parking.model.CompiledShape;
 import org.hofftech.parking.model.Order;
 import org.hofftech.parking.model.enums.OrderOperationType;
 import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
 import org.hofftech.parking.model.ParcelStartPosition;
+import org.hofftech.parking.model.PlacementIndex;
 import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.model.TruckSize;
 import org.hofftech.parking.model.dto.ParcelDto;
 import org.hofftech.parking.model.dto.PositionDto;
 import org.hofftech.parking.model.dto.TruckDto;
 import org.hofftech.parking.service.OrderManagerService;
+import org.hofftech.parking.service.ParcelService;
+import org.hofftech.parking.service.TruckPool;
 
 import java.io.File;
 import java.io.IOException;
@@ -26,7 +35,8 @@ import java.util.stream.Collectors;
 
 /**
  * Сервис для обработки JSON данных, связанных с грузовиками и посылками.
- * Предоставляет методы для сохранения данных о грузовиках в JSON файл и импорта посылок из JSON.
+ * Предоставляет методы для сохранения данных о грузовиках в JSON файл, импорта посылок из JSON,
+ * восстановления сохранённых грузовиков для догрузки и выгрузки из них отдельных посылок.
  */
 @Slf4j
 public class JsonProcessingService {
@@ -35,16 +45,25 @@ public class JsonProcessingService {
     private static final String TRUCKS_ARRAY = "trucks";
     private static final int ADJUSTING_FOR_START_POSITION = 1;
     private static final int TRUCK_NAME_INDEX = 1;
-    private static final String TRUCK_SIZE_SPLITTER = "x";
 
     private static final long INDIVIDUAL_PARCEL_QUANTITY = 1L;
 
     private final ObjectMapper objectMapper;
     private final OrderManagerService orderManagerService;
+    private final ParcelService parcelService;
 
-    public JsonProcessingService(OrderManagerService orderManagerService, ObjectMapper objectMapper) {
+    /**
+     * Пул, из которого берутся восстанавливаемые грузовики и в который возвращаются грузовики
+     * после выгрузки, или {@code null}, если грузовики всегда создаются заново.
+     */
+    @Setter
+    private TruckPool truckPool;
+
+    public JsonProcessingService(OrderManagerService orderManagerService, ObjectMapper objectMapper,
+                                 ParcelService parcelService) {
         this.orderManagerService = orderManagerService;
         this.objectMapper = objectMapper;
+        this.parcelService = parcelService;
     }
 
     /**
@@ -54,7 +73,17 @@ public class JsonProcessingService {
      * @return строковое представление JSON
      */
     public String saveToJson(List<Truck> trucks) {
-        File outputFile = createFile();
+        return writeTrucks(createFile(), trucks);
+    }
+
+    /**
+     * Записывает грузовики в JSON файл.
+     *
+     * @param outputFile файл для записи
+     * @param trucks     список грузовиков
+     * @return строковое представление JSON
+     */
+    private String writeTrucks(File outputFile, List<Truck> trucks) {
         List<TruckDto> trucksData = trucks.stream()
                 .map(this::convertToTruckDto)
                 .collect(Collectors.toList());
@@ -82,10 +111,103 @@ public class JsonProcessingService {
         File jsonFile = validateAndGetFile(jsonFilePath);
         Map<String, List<TruckDto>> jsonData = parseJsonFile(jsonFile);
         List<Parcel> parcels = extractAllParcels(jsonData.get(TRUCKS_ARRAY));
-        addUnloadOrder(jsonData.get(TRUCKS_ARRAY), parcels, user);
+        addUnloadOrder(jsonData.get(TRUCKS_ARRAY).size(), parcels, user);
         return isWithCount ? groupParcelsWithCount(parcels) : getIndividualParcels(parcels);
     }
 
+    /**
+     * Выгружает из сохранённых грузовиков только указанные посылки и записывает оставшуюся погрузку
+     * обратно в тот же файл.
+     * <p>
+     * Каждое имя в списке означает одну посылку. Из грузовиков в порядке файла выбираются посылки
+     * с этим именем, начиная с верхних, чтобы не выбивать опору у остальных. Выбранные посылки убираются
+     * из восстановленных грузовиков без их перестроения, а опора оставшихся посылок проверяется по индексу
+     * размещений. Если какая-то посылка останется без опоры, файл не изменяется.
+     * </p>
+     *
+     * @param jsonFilePath путь к JSON файлу
+     * @param parcelNames  имена выгружаемых посылок, повтор имени означает несколько посылок
+     * @param isWithCount  флаг группировки посылок с подсчетом
+     * @param user         идентификатор пользователя
+     * @return список карт с названиями выгруженных посылок и их количеством
+     * @throws ParcelNotFoundException если в грузовиках не хватает посылок с указанным именем
+     * @throws ParcelLoadingException если после выгрузки посылка останется без опоры
+     */
+    public List<Map<String, Long>> unloadParcelsFromJson(String jsonFilePath, List<String> parcelNames,
+                                                         boolean isWithCount, String user) {
+        List<Truck> trucks = loadTrucksFromJson(jsonFilePath);
+        Map<String, Long> remaining = parcelNames.stream()
+                .collect(Collectors.groupingBy(name -> name, LinkedHashMap::new, Collectors.counting()));
+
+        List<Set<Integer>> selections = new ArrayList<>();
+        for (Truck truck : trucks) {
+            selections.add(selectPlacements(truck, remaining));
+        }
+        remaining.forEach((name, count) -> {
+            if (count > 0) {
+                throw new ParcelNotFoundException("В грузовиках не хватает посылок " + name + ": " + count);
+            }
+        });
+
+        List<Parcel> unloaded = new ArrayList<>();
+        int unloadedTrucks = 0;
+        for (int i = 0; i < trucks.size(); i++) {
+            Truck truck = trucks.get(i);
+            Set<Integer> placementIds = selections.get(i);
+            if (placementIds.isEmpty()) {
+                continue;
+            }
+            int truckNumber = i + ADJUSTING_FOR_START_POSITION;
+            parcelService.findUnsupportedAfterRemoval(truck, placementIds).ifPresent(placement -> {
+                throw new ParcelLoadingException("Посылка " + placement.parcel().getName() + " в грузовике "
+                        + truckNumber + " останется без опоры: её нужно выгрузить вместе с выбранными посылками");
+            });
+            for (int placementId : placementIds) {
+                unloaded.add(truck.getPlacements().get(placementId).parcel());
+            }
+            truck.removePlacements(placementIds);
+            unloadedTrucks++;
+        }
+
+        writeTrucks(new File(jsonFilePath), trucks);
+        if (truckPool != null) {
+            truckPool.releaseAll(trucks);
+        }
+        addUnloadOrder(unloadedTrucks, unloaded, user);
+        return isWithCount ? groupParcelsWithCount(unloaded) : getIndividualParcels(unloaded);
+    }
+
+    /**
+     * Восстанавливает грузовики из файла, в который сохраняется результат погрузки.
+     *
+     * @return грузовики с размещёнными посылками в порядке файла
+     * @see #loadTrucksFromJson(String)
+     */
+    public List<Truck> loadSavedTrucks() {
+        return loadTrucksFromJson(new File(OUTPUT_DIRECTORY, FILE_NAME).getPath());
+    }
+
+    /**
+     * Восстанавливает грузовики из JSON файла: создаёт грузовики сохранённых размеров и размещает
+     * каждую посылку в её сохранённой форме и позиции, так что сетка и карта занятости совпадают
+     * с сохранённой погрузкой.
+     *
+     * @param jsonFilePath путь к JSON файлу
+     * @return грузовики с размещёнными посылками в порядке файла
+     * @throws JsonMappingException если размер грузовика некорректен или посылка не встаёт в сохранённую позицию
+     * @throws MissingStartPositionException если у посылки нет стартовой позиции
+     */
+    public List<Truck> loadTrucksFromJson(String jsonFilePath) {
+        File jsonFile = validateAndGetFile(jsonFilePath);
+        List<TruckDto> truckDtos = parseJsonFile(jsonFile).getOrDefault(TRUCKS_ARRAY, List.of());
+        List<Truck> trucks = new ArrayList<>();
+        for (TruckDto truckDto : truckDtos) {
+            trucks.add(restoreTruck(truckDto, trucks.size() + ADJUSTING_FOR_START_POSITION));
+        }
+        log.info("Восстановлено грузовиков из {}: {}", jsonFilePath, trucks.size());
+        return trucks;
+    }
+
     /**
      * Проверяет существование файла и возвращает объект File.
      *
@@ -128,19 +250,47 @@ public class JsonProcessingService {
         return parcels;
     }
 
+    /**
+     * Выбирает в грузовике размещения посылок с оставшимися к выгрузке именами, начиная с верхних,
+     * и уменьшает оставшееся количество.
+     *
+     * @param truck     восстановленный грузовик
+     * @param remaining оставшееся к выгрузке количество посылок по именам
+     * @return идентификаторы выбранных размещений
+     */
+    private Set<Integer> selectPlacements(Truck truck, Map<String, Long> remaining) {
+        List<ParcelPlacement> placements = truck.getPlacements();
+        List<Integer> topFirst = new ArrayList<>();
+        for (int placementId = 0; placementId < placements.size(); placementId++) {
+            topFirst.add(placementId);
+        }
+        topFirst.sort(Comparator.comparingInt((Integer placementId) -> placements.get(placementId).y()).reversed());
+
+        Set<Integer> selected = new TreeSet<>();
+        for (int placementId : topFirst) {
+            String name = placements.get(placementId).parcel().getName();
+            long count = remaining.getOrDefault(name, 0L);
+            if (count > 0) {
+                remaining.put(name, count - 1);
+                selected.add(placementId);
+            }
+        }
+        return selected;
+    }
+
     /**
      * Добавляет заказ на разгрузку.
      *
-     * @param trucks  список DTO грузовиков
-     * @param parcels список посылок
-     * @param userId  идентификатор пользователя
+     * @param truckCount количество разгруженных грузовиков
+     * @param parcels    список посылок
+     * @param userId     идентификатор пользователя
      */
-    private void addUnloadOrder(List<TruckDto> trucks, List<Parcel> parcels, String userId) {
+    private void addUnloadOrder(int truckCount, List<Parcel> parcels, String userId) {
         Order order = new Order(
                 userId,
                 LocalDate.now(),
                 OrderOperationType.UNLOAD,
-                trucks.size(),
+                truckCount,
                 parcels
         );
 
@@ -198,6 +348,82 @@ public class JsonProcessingService {
         }
     }
 
+    /**
+     * Создаёт грузовик по DTO и размещает в нём сохранённые посылки.
+     * В DTO строки формы хранятся снизу вверх, а позиции — с единицы.
+     *
+     * @param truckDto    DTO грузовика
+     * @param truckNumber номер грузовика в файле для сообщений об ошибках
+     * @return восстановленный грузовик
+     */
+    private Truck restoreTruck(TruckDto truckDto, int truckNumber) {
+        Truck truck = createTruck(truckDto.getTruckSize(), truckNumber);
+        List<ParcelDto> parcelDtos = truckDto.getParcels() == null ? List.of() : truckDto.getParcels();
+        for (ParcelDto parcelDto : parcelDtos) {
+            ParcelStartPosition position = getParcelStartPosition(parcelDto);
+            List<String> topDownShape = new ArrayList<>(parcelDto.getShape());
+            Collections.reverse(topDownShape);
+            Parcel parcel = new Parcel(parcelDto.getName(), topDownShape, parcelDto.getSymbol(), null);
+            int startX = position.x() - ADJUSTING_FOR_START_POSITION;
+            int startY = position.y() - ADJUSTING_FOR_START_POSITION;
+            if (!parcelService.restoreParcel(truck, parcel, startX, startY)) {
+                throw new JsonMappingException("Посылка " + parcelDto.getName()
+                        + " не помещается в сохранённую позицию грузовика " + truckNumber
+                        + describeCollision(truck, parcel.getCompiledShape(), startX, startY), null);
+            }
+        }
+        return truck;
+    }
+
+    /**
+     * Описывает первую клетку формы, которая выходит за грузовик или занята другой посылкой.
+     * Занявшая клетку посылка определяется по индексу размещений, а не по символу.
+     *
+     * @param truck  грузовик
+     * @param shape  форма посылки
+     * @param startX координата X посылки
+     * @param startY координата Y посылки
+     * @return пояснение для сообщения об ошибке
+     */
+    private String describeCollision(Truck truck, CompiledShape shape, int startX, int startY) {
+        for (int y = 0; y < shape.getHeight(); y++) {
+            for (int x = 0; x < shape.rowWidth(y); x++) {
+                if (!shape.isFilled(x, y)) {
+                    continue;
+                }
+                int cellX = startX + x;
+                int cellY = startY + y;
+                if (cellX < 0 || cellY < 0 || cellX >= truck.getWidth() || cellY >= truck.getHeight()) {
+                    return ": выходит за границы грузовика";
+                }
+                int placementId = truck.getPlacementId(cellX, cellY);
+                if (placementId != PlacementIndex.NO_PLACEMENT) {
+                    return ": клетка (" + (cellX + ADJUSTING_FOR_START_POSITION) + ", "
+                            + (cellY + ADJUSTING_FOR_START_POSITION) + ") занята посылкой "
+                            + truck.getPlacements().get(placementId).parcel().getName();
+                }
+            }
+        }
+        return ": недостаточно опоры";
+    }
+
+    /**
+     * Создаёт пустой грузовик по размеру в формате {@code ширинаxвысота}.
+     *
+     * @param truckSize   размер грузовика
+     * @param truckNumber номер грузовика в файле для сообщений об ошибках
+     * @return пустой грузовик
+     */
+    private Truck createTruck(String truckSize, int truckNumber) {
+        TruckSize size;
+        try {
+            size = TruckSize.parse(truckSize);
+        } catch (IllegalArgumentException e) {
+            throw new JsonMappingException("Некорректный размер грузовика " + truckNumber + ": " + truckSize, e);
+        }
+        return truckPool == null ? new Truck(size.width(), size.height()) : truckPool.acquire(size.width(), size.height());
+    }
+
     /**
      * Получает начальную позицию посылки из DTO.
      *
@@ -221,34 +447,30 @@ public class JsonProcessingService {
      * @return объект TruckDto
      */
     private TruckDto convertToTruckDto(Truck truck) {
-        List<ParcelDto> parcelDtos = truck.getParcels().stream()
+        List<ParcelDto> parcelDtos = truck.getPlacements().stream()
                 .map(this::convertToParcelDto)
                 .collect(Collectors.toList());
-        String size = truck.getWidth() + TRUCK_SIZE_SPLITTER + truck.getHeight();
+        String size = TruckSize.format(truck.getWidth(), truck.getHeight());
         return new TruckDto(TRUCK_NAME_INDEX, size, parcelDtos);
     }
 
     /**
-     * Преобразует объект Parcel в ParcelDto.
+     * Преобразует размещение посылки в ParcelDto.
      *
-     * @param providedParcel объект Parcel
+     * @param placement размещение посылки в грузовике
      * @return объект ParcelDto
      */
-    private ParcelDto convertToParcelDto(Parcel providedParcel) {
+    private ParcelDto convertToParcelDto(ParcelPlacement placement) {
+        Parcel providedParcel = placement.parcel();
         ParcelDto parcelDto = new ParcelDto();
         parcelDto.setName(providedParcel.getName());
-        parcelDto.setShape(providedParcel.getReversedShape());
+        parcelDto.setShape(placement.shape().getRows());
         parcelDto.setSymbol(providedParcel.getSymbol());
 
-        ParcelStartPosition position = providedParcel.getParcelStartPosition();
-        if (position != null) {
-            PositionDto positionDto = new PositionDto();
-            positionDto.setX(position.x() + ADJUSTING_FOR_START_POSITION);
-            positionDto.setY(position.y() + ADJUSTING_FOR_START_POSITION);
-            parcelDto.setStartPosition(positionDto);
-        } else {
-            throw new MissingStartPositionException("Отсутствует стартовая позиция у посылки " + providedParcel.getName());
-        }
+        PositionDto positionDto = new PositionDto();
+        positionDto.setX(placement.x() + ADJUSTING_FOR_START_POSITION);
+        positionDto.setY(placement.y() + ADJUSTING_FOR_START_POSITION);
+        parcelDto.setStartPosition(positionDto);
 
         return parcelDto;
     }
@@ -0,0 +1,24 @@
+package org.hofftech.parking.service.packingalgorithm.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.service.TruckService;
+import org.hofftech.parking.service.packingalgorithm.PackingAlgorithm;
+
+import java.util.List;
+/**
+ * Класс реализации алгоритма упаковки по принципу наилучшего размещения:
+ * каждая посылка попадает в самый заполненный грузовик, в котором она помещается.
+ */
+@RequiredArgsConstructor
+public class BestFitTruckAlgorithm implements PackingAlgorithm {
+    private final TruckService truckService;
+    /**
+     * Добавляет посылки в грузовики с наименьшей подходящей свободной площадью.
+     */
+    @Override
+    public List<Truck> addParcels(List<Parcel> parcels, boolean useEasyAlgorithm, boolean useEvenAlgorithm, List<String> trucksFromArgs) {
+        return truckService.addParcelsToBestFitTrucks(parcels, trucksFromArgs);
+    }
+}
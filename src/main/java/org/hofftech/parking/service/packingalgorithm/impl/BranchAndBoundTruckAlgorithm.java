@@ -0,0 +1,26 @@
+package org.hofftech.parking.service.packingalgorithm.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.service.TruckService;
+import org.hofftech.parking.service.packingalgorithm.PackingAlgorithm;
+
+import java.time.Duration;
+import java.util.List;
+/**
+ * Класс реализации алгоритма упаковки, который методом ветвей и границ ищет размещение
+ * в наименьшем количестве грузовиков за отведённое время.
+ */
+@RequiredArgsConstructor
+public class BranchAndBoundTruckAlgorithm implements PackingAlgorithm {
+    private final TruckService truckService;
+    private final Duration budget;
+    /**
+     * Добавляет посылки в наименьшее найденное за отведённое время количество грузовиков.
+     */
+    @Override
+    public List<Truck> addParcels(List<Parcel> parcels, boolean useEasyAlgorithm, boolean useEvenAlgorithm, List<String> trucksFromArgs) {
+        return truckService.addParcelsWithBranchAndBound(parcels, trucksFromArgs, budget);
+    }
+}
@@ -0,0 +1,28 @@
+package org.hofftech.parking.service.packingalgorithm.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.service.TruckService;
+import org.hofftech.parking.service.packingalgorithm.PackingAlgorithm;
+
+import java.time.Duration;
+import java.util.List;
+/**
+ * Класс реализации алгоритма упаковки, который дополняет другой алгоритм фазой улучшения:
+ * после упаковки посылки переносятся между грузовиками, чтобы освободить наименее заполненные.
+ */
+@RequiredArgsConstructor
+public class ImprovedTruckAlgorithm implements PackingAlgorithm {
+    private final PackingAlgorithm packingAlgorithm;
+    private final TruckService truckService;
+    private final Duration budget;
+    /**
+     * Добавляет посылки исходным алгоритмом и улучшает полученное размещение.
+     */
+    @Override
+    public List<Truck> addParcels(List<Parcel> parcels, boolean useEasyAlgorithm, boolean useEvenAlgorithm, List<String> trucksFromArgs) {
+        List<Truck> trucks = packingAlgorithm.addParcels(parcels, useEasyAlgorithm, useEvenAlgorithm, trucksFromArgs);
+        return truckService.improveFleet(trucks, budget, trucksFromArgs.isEmpty());
+    }
+}
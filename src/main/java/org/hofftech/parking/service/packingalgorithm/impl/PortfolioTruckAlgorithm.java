@@ -0,0 +1,245 @@
+package org.hofftech.parking.service.packingalgorithm.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.exception.InsufficientTrucksException;
+import org.hofftech.parking.model.GridArena;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.service.TruckService;
+import org.hofftech.parking.service.packingalgorithm.PackingAlgorithm;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Класс реализации алгоритма упаковки, который одновременно запускает несколько эвристик
+ * и выбирает лучший результат, полученный за отведённое время.
+ * <p>
+ * Каждая эвристика сортирует собственный список посылок и создаёт собственные грузовики;
+ * сами посылки при упаковке не изменяются, поэтому эвристики разделяют их без копирования.
+ * Лучшим считается результат с наименьшим количеством занятых грузовиков, а при равенстве —
+ * с наибольшей заполненностью занятых грузовиков. Грузовики остальных завершившихся эвристик
+ * возвращаются в пул через {@link TruckService#releaseTrucks}.
+ * </p>
+ * <p>
+ * Эвристики выполняются в собственном пуле потоков ограниченного размера, а не в общем пуле fork-join,
+ * в котором ищет позиции параллельный режим {@link TruckService}. По истечении времени незавершённые
+ * эвристики отменяются: поток эвристики прерывается, и упаковка останавливается перед следующей посылкой.
+ * Эвристики выполняются в области памяти сеток {@link GridArena} вызывающего потока, если она открыта.
+ * Если к сроку не завершилась ни одна эвристика, базовая упаковка «первый подходящий по убыванию высоты»
+ * ожидается не дольше ещё одного отведённого времени, а остальные эвристики отменяются сразу.
+ * </p>
+ * <p>
+ * Отдельной эвристики «нижний левый угол по горизонту» нет: каждая эвристика уже размещает посылки
+ * поиском по горизонту в {@link org.hofftech.parking.service.ParcelService}, поэтому портфель различается
+ * порядком посылок и выбором грузовика.
+ * </p>
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PortfolioTruckAlgorithm implements PackingAlgorithm {
+    private static final int BASELINE_INDEX = 0;
+    private static final String THREAD_NAME_PREFIX = "portfolio-";
+
+    private static final Comparator<Parcel> BY_HEIGHT = Comparator.naturalOrder();
+    private static final Comparator<Parcel> BY_AREA = Comparator
+            .comparingInt((Parcel parcel) -> parcel.getCompiledShape().getFilledCells())
+            .reversed()
+            .thenComparing(BY_HEIGHT);
+    private static final Comparator<Parcel> BY_WIDTH = Comparator
+            .comparingInt((Parcel parcel) -> parcel.getCompiledShape().getWidth())
+            .reversed()
+            .thenComparing(BY_HEIGHT);
+    private static final Comparator<Result> BY_QUALITY = Comparator
+            .comparingInt(Result::usedTrucks)
+            .thenComparing(Comparator.comparingDouble(Result::fill).reversed());
+
+    private final TruckService truckService;
+    private final Duration budget;
+    private final ExecutorService executor;
+
+    /**
+     * Создаёт пул потоков для эвристик. Потоки пула — демоны и не мешают завершению приложения.
+     *
+     * @param threads количество потоков
+     * @return пул потоков фиксированного размера
+     */
+    public static ExecutorService newExecutor(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Добавляет посылки в грузовики лучшей из эвристик, завершившихся за отведённое время.
+     */
+    @Override
+    public List<Truck> addParcels(List<Parcel> parcels, boolean useEasyAlgorithm, boolean useEvenAlgorithm, List<String> trucksFromArgs) {
+        List<Strategy> strategies = List.of(
+                new Strategy("первый подходящий по высоте",
+                        (ordered, trucks) -> truckService.addParcelsToMultipleTrucks(ordered, false, trucks, BY_HEIGHT)),
+                new Strategy("первый подходящий по площади",
+                        (ordered, trucks) -> truckService.addParcelsToMultipleTrucks(ordered, false, trucks, BY_AREA)),
+                new Strategy("первый подходящий по ширине",
+                        (ordered, trucks) -> truckService.addParcelsToMultipleTrucks(ordered, false, trucks, BY_WIDTH)),
+                new Strategy("наилучший по высоте",
+                        (ordered, trucks) -> truckService.addParcelsToBestFitTrucks(ordered, trucks, BY_HEIGHT)),
+                new Strategy("наилучший по площади",
+                        (ordered, trucks) -> truckService.addParcelsToBestFitTrucks(ordered, trucks, BY_AREA))
+        );
+
+        long deadlineNanos = System.nanoTime() + budget.toNanos();
+        List<Future<Result>> runs = strategies.stream()
+                .map(strategy -> executor.submit(GridArena.inCurrentArena(() -> run(strategy, parcels, trucksFromArgs))))
+                .toList();
+
+        try {
+            awaitDeadline(runs, deadlineNanos);
+            Result best = bestCompleted(runs)
+                    .orElseGet(() -> awaitBaseline(runs, deadlineNanos + budget.toNanos()));
+
+            log.info("Лучший результат дала эвристика «{}»: {} грузовиков, заполненность {}.",
+                    best.strategy(), best.usedTrucks(), String.format("%.3f", best.fill()));
+            releaseOthers(runs, best);
+            return best.trucks();
+        } finally {
+            cancelUnfinished(runs);
+        }
+    }
+
+    /**
+     * Выполняет эвристику на собственном списке посылок.
+     */
+    private Result run(Strategy strategy, List<Parcel> parcels, List<String> trucksFromArgs) {
+        List<Truck> trucks = strategy.packer().apply(new ArrayList<>(parcels), new ArrayList<>(trucksFromArgs));
+        return Result.of(strategy.name(), trucks);
+    }
+
+    /**
+     * Ожидает завершения всех эвристик, но не дольше, чем до истечения отведённого времени.
+     */
+    private void awaitDeadline(List<Future<Result>> runs, long deadlineNanos) {
+        for (Future<Result> run : runs) {
+            try {
+                run.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                log.info("Время портфельной упаковки истекло, выбираем из завершившихся эвристик.");
+                return;
+            } catch (ExecutionException | CancellationException e) {
+                log.debug("Одна из эвристик завершилась с ошибкой: {}", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Выбирает лучший результат среди успешно завершившихся эвристик.
+     */
+    private Optional<Result> bestCompleted(List<Future<Result>> runs) {
+        return runs.stream()
+                .filter(run -> run.state() == Future.State.SUCCESS)
+                .map(Future::resultNow)
+                .min(BY_QUALITY);
+    }
+
+    /**
+     * Возвращает в пул грузовики завершившихся эвристик, кроме выбранной.
+     */
+    private void releaseOthers(List<Future<Result>> runs, Result best) {
+        for (Future<Result> run : runs) {
+            if (run.state() == Future.State.SUCCESS && run.resultNow() != best) {
+                truckService.releaseTrucks(run.resultNow().trucks());
+            }
+        }
+    }
+
+    /**
+     * Ожидает результат базовой эвристики, если к сроку не завершилась ни одна эвристика
+     * или все завершились с ошибкой. Остальные эвристики отменяются, чтобы освободить потоки.
+     *
+     * @param runs           запущенные эвристики
+     * @param baselineNanos  момент {@link System#nanoTime()}, после которого базовая эвристика отменяется
+     * @throws InsufficientTrucksException если базовая эвристика не смогла разместить посылки
+     *                                     или не завершилась к сроку
+     */
+    private Result awaitBaseline(List<Future<Result>> runs, long baselineNanos) {
+        cancelUnfinished(runs.subList(BASELINE_INDEX + 1, runs.size()));
+        try {
+            return runs.get(BASELINE_INDEX).get(Math.max(0, baselineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new InsufficientTrucksException("Ни одна эвристика не разместила посылки.", e.getCause());
+        } catch (TimeoutException | CancellationException e) {
+            throw new InsufficientTrucksException("Не удалось разместить посылки за отведённое время.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InsufficientTrucksException("Портфельная упаковка прервана.", e);
+        }
+    }
+
+    /**
+     * Отменяет незавершённые эвристики, прерывая их потоки.
+     */
+    private void cancelUnfinished(List<Future<Result>> runs) {
+        for (Future<Result> run : runs) {
+            if (!run.isDone()) {
+                run.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Эвристика упаковки.
+     *
+     * @param name   название для журнала
+     * @param packer функция, размещающая копии посылок в грузовики указанных размеров
+     */
+    private record Strategy(String name, BiFunction<List<Parcel>, List<String>, List<Truck>> packer) {
+    }
+
+    /**
+     * Результат эвристики.
+     *
+     * @param strategy   название эвристики
+     * @param trucks     грузовики с размещёнными посылками
+     * @param usedTrucks количество непустых грузовиков
+     * @param fill       доля занятых клеток в непустых грузовиках
+     */
+    private record Result(String strategy, List<Truck> trucks, int usedTrucks, double fill) {
+
+        static Result of(String strategy, List<Truck> trucks) {
+            int usedTrucks = 0;
+            long usedArea = 0;
+            long occupiedCells = 0;
+            for (Truck truck : trucks) {
+                if (!truck.getParcels().isEmpty()) {
+                    usedTrucks++;
+                    usedArea += (long) truck.getWidth() * truck.getHeight();
+                    occupiedCells += (long) truck.getWidth() * truck.getHeight() - truck.getFreeCells();
+                }
+            }
+            double fill = usedArea == 0 ? 0 : (double) occupiedCells / usedArea;
+            return new Result(strategy, trucks, usedTrucks, fill);
+        }
+    }
+}
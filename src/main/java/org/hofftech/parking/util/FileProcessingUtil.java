@@ -1,15 +1,24 @@
 package org.hofftech.parking.util;
 
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.exception.ParcelArgumentException;
 import org.hofftech.parking.exception.ParcelsNotFoundException; // Импорт кастомного исключения
 import org.hofftech.parking.factory.ParcelAlgorithmFactory;
+import org.hofftech.parking.model.GridArena;
+import org.hofftech.parking.model.GridMemoryPool;
+import org.hofftech.parking.model.LoadRequest;
+import org.hofftech.parking.model.LoadResult;
 import org.hofftech.parking.model.Order;
+import org.hofftech.parking.model.PackingPlan;
 import org.hofftech.parking.model.enums.OrderOperationType;
 import org.hofftech.parking.model.Parcel;
 import org.hofftech.parking.model.Truck;
 import org.hofftech.parking.service.json.JsonProcessingService;
 import org.hofftech.parking.service.OrderManagerService;
+import org.hofftech.parking.service.PackingResultCache;
+import org.hofftech.parking.service.TruckPool;
 import org.hofftech.parking.service.TruckService;
 import org.hofftech.parking.service.packingalgorithm.PackingAlgorithm;
 import org.hofftech.parking.parcer.ParsingService;
@@ -18,6 +27,11 @@ import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
  * Утилитный класс для обработки файлов с информацией о посылках.
@@ -32,6 +46,8 @@ import java.util.List;
 @Slf4j
 @RequiredArgsConstructor
 public class FileProcessingUtil {
+    private static final int MIN_BATCH_THREADS = 1;
+    private static final int PERCENT = 100;
 
     private final ParsingService parsingService;
     private final TruckService truckService;
@@ -39,6 +55,31 @@ public class FileProcessingUtil {
     private final ParcelAlgorithmFactory parcelAlgorithmFactory;
     private final OrderManagerService orderManagerService;
 
+    /**
+     * Максимальное количество потоков для пакетной погрузки.
+     */
+    @Setter
+    private int batchThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Кэш результатов упаковки для повторяющихся запросов или {@code null}, если кэш отключён.
+     */
+    @Setter
+    private PackingResultCache packingResultCache;
+
+    /**
+     * Пул памяти вне кучи для сеток грузовиков или {@code null}, если сетки размещаются в куче.
+     * Каждый запрос получает собственную область памяти, которая закрывается по завершении запроса.
+     */
+    @Setter
+    private GridMemoryPool gridMemoryPool;
+
+    /**
+     * Пул, в который возвращаются грузовики после вывода результата запроса, или {@code null}.
+     */
+    @Setter
+    private TruckPool truckPool;
+
     /**
      * Обрабатывает файл с посылками или текстовые данные, распределяет посылки по грузовикам,
      * добавляет заказ и при необходимости сохраняет результаты в файл.
@@ -60,23 +101,273 @@ public class FileProcessingUtil {
      */
     public String process(Path parcelsFile, String parcelsText, List<String> trucksFromArgs,
                           boolean isEasyAlgorithm, boolean isSaveToFile, boolean isEvenAlgorithm, String user) {
-        List<Parcel> parcels = parsingService.getParcels(parcelsFile, parcelsText);
+        return process(new LoadRequest(parcelsFile, parcelsText, trucksFromArgs,
+                isEasyAlgorithm, isSaveToFile, isEvenAlgorithm, false, false, false, false, false, null, user));
+    }
+
+    /**
+     * Обрабатывает запрос на погрузку: распределяет посылки по грузовикам,
+     * добавляет заказ и при необходимости сохраняет результаты в файл.
+     * Позиции и повороты посылок записываются в размещения грузовиков, поэтому записи каталога не изменяются.
+     *
+     * @param request запрос на погрузку
+     * @return строковое сообщение о результате обработки
+     * @throws ParcelsNotFoundException если список посылок пуст
+     */
+    public String process(LoadRequest request) {
+        return withGridArena(() -> packParcels(request, readParcels(request)));
+    }
+
+    /**
+     * Выполняет пробную погрузку и возвращает её план без побочных эффектов.
+     *
+     * <p>
+     * Посылки упаковываются в новые грузовики, заказ не создаётся и результат
+     * не сохраняется в файл, поэтому запрос можно повторять с разными грузовиками и алгоритмами.
+     * Флаг сохранения в файл запроса игнорируется.
+     * </p>
+     *
+     * @param request запрос на погрузку
+     * @return план погрузки
+     * @throws ParcelsNotFoundException если список посылок пуст
+     */
+    public PackingPlan plan(LoadRequest request) {
+        List<Parcel> parcels = readParcels(request);
+        if (parcels.isEmpty()) {
+            throw new ParcelsNotFoundException();
+        }
+        PackingPlan plan = withGridArena(() -> {
+            List<Truck> trucks = pack(request, parcels);
+            PackingPlan packingPlan = PackingPlan.of(trucks);
+            releaseTrucks(trucks);
+            return packingPlan;
+        });
+        log.info("Пробная погрузка для пользователя {}: {} грузовиков, заполнение {}%.", request.user(),
+                plan.truckCount(), Math.round(plan.utilization() * PERCENT));
+        return plan;
+    }
+
+    /**
+     * Догружает посылки запроса в грузовики, сохранённые предыдущей погрузкой в JSON файл.
+     *
+     * <p>
+     * Сохранённые посылки остаются на своих местах, новые размещаются в свободных клетках
+     * сохранённых грузовиков, затем в грузовиках из запроса. Заказ создаётся только на новые посылки.
+     * Из флагов алгоритма учитывается только поворот посылок.
+     * </p>
+     *
+     * @param request запрос на погрузку
+     * @return строковое сообщение о результате обработки
+     * @throws ParcelsNotFoundException если список посылок пуст
+     */
+    public String topUp(LoadRequest request) {
+        List<Parcel> parcels = readParcels(request);
+        if (parcels.isEmpty()) {
+            throw new ParcelsNotFoundException();
+        }
+        return withGridArena(() -> topUpSavedTrucks(request, parcels));
+    }
+
+    /**
+     * Догружает посылки в сохранённые грузовики, добавляет заказ на новые посылки и выводит результат.
+     *
+     * @param request запрос на погрузку
+     * @param parcels посылки для догрузки
+     * @return строковое сообщение о результате обработки
+     */
+    private String topUpSavedTrucks(LoadRequest request, List<Parcel> parcels) {
+        List<Truck> loadedTrucks = jsonProcessingService.loadSavedTrucks();
+        List<Truck> trucks = parcelAlgorithmFactory.resolveTruckService(request)
+                .addParcelsToLoadedTrucks(parcels, loadedTrucks, request.trucksFromArgs());
+
+        int truckCount = 0;
+        for (int i = 0; i < trucks.size(); i++) {
+            int previouslyPlaced = i < loadedTrucks.size() ? loadedTrucks.get(i).getPlacements().size() : 0;
+            if (trucks.get(i).getPlacements().size() > previouslyPlaced) {
+                truckCount++;
+            }
+        }
+        addLoadOrder(parcels, truckCount, request.user());
+        log.info("Догрузка для пользователя {}: {} посылок в {} грузовиков.", request.user(), parcels.size(), truckCount);
+
+        return output(request, trucks);
+    }
+
+    /**
+     * Обрабатывает пакет независимых запросов на погрузку параллельно на пуле потоков ограниченного размера.
+     *
+     * <p>
+     * Каждый запрос упаковывается в собственные грузовики. Упаковка не изменяет объекты {@link Parcel},
+     * поэтому параллельные погрузки разделяют посылки каталога без копирования. Ошибка одного запроса
+     * не прерывает остальные и возвращается в его результате. Результаты возвращаются в порядке запросов.
+     * </p>
+     * <p>
+     * Все погрузки сохраняются в один и тот же JSON файл, поэтому запросы с сохранением в файл
+     * в пакетном режиме не выполняются и возвращаются с ошибкой, не затрагивая остальные запросы.
+     * </p>
+     *
+     * @param requests список запросов на погрузку
+     * @return список результатов в том же порядке, что и запросы
+     */
+    public List<LoadResult> processBatch(List<LoadRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        int threads = Math.max(MIN_BATCH_THREADS, Math.min(batchThreads, requests.size()));
+        log.info("Пакетная погрузка: {} запросов, потоков: {}", requests.size(), threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (LoadRequest request : requests) {
+                futures.add(executor.submit(() -> processBatchRequest(request)));
+            }
+
+            List<LoadResult> results = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                results.add(awaitResult(requests.get(i), futures.get(i)));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Обрабатывает один запрос пакетной погрузки.
+     *
+     * @param request запрос на погрузку
+     * @return строковое сообщение о результате обработки
+     * @throws ParcelArgumentException если запрос требует сохранения в файл
+     */
+    private String processBatchRequest(LoadRequest request) {
+        if (request.isSaveToFile()) {
+            throw new ParcelArgumentException("Сохранение в файл недоступно при пакетной погрузке.");
+        }
+        return process(request);
+    }
+
+    /**
+     * Возвращает посылки запроса из каталога.
+     * Одна и та же посылка каталога входит в список столько раз, сколько раз она указана в запросе.
+     *
+     * @param request запрос на погрузку
+     * @return изменяемый список посылок
+     */
+    private List<Parcel> readParcels(LoadRequest request) {
+        return new ArrayList<>(parsingService.getParcels(request.parcelsFile(), request.parcelsText()));
+    }
+
+    /**
+     * Выполняет действие в собственной области памяти сеток, если пул памяти вне кучи включён.
+     * Грузовики, созданные действием, не должны использоваться после его завершения.
+     *
+     * @param action действие над грузовиками запроса
+     * @return результат действия
+     */
+    private <T> T withGridArena(Supplier<T> action) {
+        if (gridMemoryPool == null) {
+            return action.get();
+        }
+        try (GridArena ignored = gridMemoryPool.openArena()) {
+            return action.get();
+        }
+    }
+
+    /**
+     * Ожидает завершения запроса пакетной погрузки и преобразует его исход в {@link LoadResult}.
+     *
+     * @param request запрос на погрузку
+     * @param future  задача, обрабатывающая запрос
+     * @return результат обработки запроса
+     */
+    private LoadResult awaitResult(LoadRequest request, Future<String> future) {
+        try {
+            return new LoadResult(request, future.get(), null);
+        } catch (ExecutionException e) {
+            log.error("Ошибка пакетной погрузки для пользователя {}: {}", request.user(), e.getCause().getMessage());
+            return new LoadResult(request, null, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new LoadResult(request, null, "Пакетная погрузка прервана");
+        }
+    }
 
+    /**
+     * Распределяет посылки по грузовикам, добавляет заказ и при необходимости сохраняет результаты в файл.
+     *
+     * @param request запрос на погрузку
+     * @param parcels посылки для погрузки
+     * @return строковое сообщение о результате обработки
+     * @throws ParcelsNotFoundException если список посылок пуст
+     */
+    private String packParcels(LoadRequest request, List<Parcel> parcels) {
         if (parcels.isEmpty()) {
             throw new ParcelsNotFoundException();
         }
 
-        PackingAlgorithm strategy = parcelAlgorithmFactory.createStrategy(isEasyAlgorithm);
-        List<Truck> trucks = strategy.addParcels(parcels, isEasyAlgorithm, isEvenAlgorithm, trucksFromArgs);
+        List<Truck> trucks = pack(request, parcels);
 
-        addLoadOrder(trucks, user);
+        addLoadOrder(trucks, request.user());
+
+        return output(request, trucks);
+    }
 
-        if (isSaveToFile) {
+    /**
+     * Сохраняет грузовики в файл или возвращает их текстовое представление в зависимости от запроса,
+     * после чего возвращает грузовики в пул.
+     *
+     * @param request запрос на погрузку
+     * @param trucks  грузовики с размещёнными посылками
+     * @return строковое сообщение о результате обработки
+     */
+    private String output(LoadRequest request, List<Truck> trucks) {
+        String result;
+        if (request.isSaveToFile()) {
             saveTrucksToJson(trucks);
-            return "Данные сохранены в файл.";
+            result = "Данные сохранены в файл.";
         } else {
-            return truckService.printTrucks(trucks);
+            result = truckService.printTrucks(trucks);
         }
+        releaseTrucks(trucks);
+        return result;
+    }
+
+    /**
+     * Возвращает грузовики запроса в пул, если он задан. После этого грузовики нельзя использовать.
+     *
+     * @param trucks грузовики, результат которых уже выведен
+     */
+    private void releaseTrucks(List<Truck> trucks) {
+        if (truckPool != null) {
+            truckPool.releaseAll(trucks);
+        }
+    }
+
+    /**
+     * Упаковывает посылки, используя кэш результатов, если он включён.
+     *
+     * @param request запрос на погрузку
+     * @param parcels посылки для погрузки
+     * @return грузовики с размещёнными посылками
+     */
+    private List<Truck> pack(LoadRequest request, List<Parcel> parcels) {
+        return packingResultCache == null
+                ? packTrucks(request, parcels)
+                : packingResultCache.getOrPack(request, parcels, () -> packTrucks(request, parcels));
+    }
+
+    /**
+     * Упаковывает посылки алгоритмом, выбранным по флагам запроса.
+     *
+     * @param request запрос на погрузку
+     * @param parcels посылки для погрузки
+     * @return грузовики с размещёнными посылками
+     */
+    private List<Truck> packTrucks(LoadRequest request, List<Parcel> parcels) {
+        PackingAlgorithm strategy = parcelAlgorithmFactory.createStrategy(request);
+        return strategy.addParcels(parcels, request.isEasyAlgorithm(), request.isEvenAlgorithm(),
+                request.trucksFromArgs());
     }
 
     /**
@@ -100,13 +391,23 @@ public class FileProcessingUtil {
                 truckCount++;
             }
         }
+        addLoadOrder(allParcels, truckCount, userId);
+    }
 
+    /**
+     * Добавляет заказ на погрузку указанных посылок для пользователя.
+     *
+     * @param parcels    погруженные посылки
+     * @param truckCount количество задействованных грузовиков
+     * @param userId     идентификатор пользователя, для которого создаётся заказ
+     */
+    private void addLoadOrder(List<Parcel> parcels, int truckCount, String userId) {
         Order order = new Order(
                 userId,
                 LocalDate.now(),
                 OrderOperationType.LOAD,
                 truckCount,
-                allParcels
+                parcels
         );
         orderManagerService.addOrder(order);
         log.info("Заказ на погрузку добавлен для пользователя {}", userId);
@@ -123,7 +424,7 @@ public class FileProcessingUtil {
      * @param trucks список грузовиков для сохранения
      * @throws RuntimeException если происходит ошибка при сохранении данных в JSON
      */
-    protected void saveTrucksToJson(List<Truck> trucks) {
+    protected synchronized void saveTrucksToJson(List<Truck> trucks) {
         try {
             log.info("Сохраняем данные грузовиков в JSON...");
             String result = jsonProcessingService.saveToJson(trucks);
@@ -0,0 +1,228 @@
+package org.hofftech.parking.validator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hofftech.parking.exception.InsufficientTrucksException;
+import org.hofftech.parking.model.CompiledShape;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Класс для предварительной проверки выполнимости погрузки.
+ * <p>
+ * Проверка выполняется до начала упаковки и за время, линейное по количеству посылок,
+ * отклоняет заведомо невыполнимые запросы: когда суммарная площадь посылок превышает площадь парка,
+ * когда посылка не помещается ни в один грузовик по габаритам, и когда посылки, которые помещаются
+ * только в часть грузовиков, занимают больше площади, чем есть в этих грузовиках.
+ * </p>
+ * <p>
+ * Проверка необходимая, но не достаточная: прошедший её запрос всё ещё может не поместиться
+ * из-за формы посылок и требования опоры.
+ * </p>
+ * <p>
+ * Если посылки разрешено поворачивать, посылка считается подходящей для грузовика,
+ * когда в него по габаритам помещается хотя бы одна из её ориентаций.
+ * </p>
+ */
+@Slf4j
+public class LoadFeasibilityValidator {
+
+    private static final String SIZE_SEPARATOR = "x";
+    private static final String TYPES_DELIMITER = ", ";
+
+    /**
+     * Проверяет, что посылки могут поместиться в указанные грузовики.
+     *
+     * @param parcels список посылок для размещения
+     * @param trucks  список пустых грузовиков
+     * @throws InsufficientTrucksException если погрузка заведомо невыполнима; сообщение содержит причину
+     */
+    public void validate(List<Parcel> parcels, List<Truck> trucks) {
+        validate(parcels, trucks, LoadFeasibilityValidator::authoredShape);
+    }
+
+    /**
+     * Проверяет, что посылки в любой из допустимых ориентаций могут поместиться в указанные грузовики.
+     *
+     * @param parcels      список посылок для размещения
+     * @param trucks       список пустых грузовиков
+     * @param orientations функция, возвращающая допустимые ориентации посылки
+     * @throws InsufficientTrucksException если погрузка заведомо невыполнима; сообщение содержит причину
+     */
+    public void validate(List<Parcel> parcels, List<Truck> trucks, Function<Parcel, List<CompiledShape>> orientations) {
+        if (trucks.isEmpty()) {
+            throw new InsufficientTrucksException("Невозможно распределить посылки: нет грузовиков.");
+        }
+        List<TruckType> truckTypes = groupTruckTypes(trucks);
+
+        checkTotalArea(parcels, truckTypes);
+        Map<BitSet, Integer> areaByFitSet = collectAreaByFitSet(parcels, truckTypes, orientations);
+        checkRestrictedParcels(areaByFitSet, truckTypes);
+        log.debug("Предварительная проверка погрузки пройдена: {} посылок, {} грузовиков.", parcels.size(), trucks.size());
+    }
+
+    /**
+     * Проверяет, что каждая посылка по габаритам помещается хотя бы в один из грузовиков.
+     * Используется, когда парк грузовиков формируется автоматически и площадь не ограничена.
+     *
+     * @param parcels список посылок для размещения
+     * @param trucks  список доступных типов грузовиков
+     * @throws InsufficientTrucksException если посылка не помещается ни в один грузовик
+     */
+    public void validateDimensions(List<Parcel> parcels, List<Truck> trucks) {
+        validateDimensions(parcels, trucks, LoadFeasibilityValidator::authoredShape);
+    }
+
+    /**
+     * Проверяет, что каждая посылка хотя бы в одной из допустимых ориентаций помещается хотя бы в один из грузовиков.
+     *
+     * @param parcels      список посылок для размещения
+     * @param trucks       список доступных типов грузовиков
+     * @param orientations функция, возвращающая допустимые ориентации посылки
+     * @throws InsufficientTrucksException если посылка не помещается ни в один грузовик
+     */
+    public void validateDimensions(List<Parcel> parcels, List<Truck> trucks,
+                                   Function<Parcel, List<CompiledShape>> orientations) {
+        collectAreaByFitSet(parcels, groupTruckTypes(trucks), orientations);
+    }
+
+    private static List<CompiledShape> authoredShape(Parcel parcel) {
+        return List.of(parcel.getCompiledShape());
+    }
+
+    /**
+     * Группирует грузовики по размерам.
+     *
+     * @param trucks список грузовиков
+     * @return типы грузовиков с количеством грузовиков каждого типа
+     */
+    private List<TruckType> groupTruckTypes(List<Truck> trucks) {
+        Map<String, TruckType> types = new LinkedHashMap<>();
+        for (Truck truck : trucks) {
+            types.merge(truck.getWidth() + SIZE_SEPARATOR + truck.getHeight(),
+                    new TruckType(truck.getWidth(), truck.getHeight(), 1),
+                    (existing, added) -> new TruckType(existing.width(), existing.height(), existing.count() + 1));
+        }
+        return new ArrayList<>(types.values());
+    }
+
+    /**
+     * Сравнивает суммарную площадь посылок с суммарной площадью грузовиков.
+     *
+     * @param parcels    список посылок
+     * @param truckTypes типы грузовиков
+     * @throws InsufficientTrucksException если площади грузовиков не хватает
+     */
+    private void checkTotalArea(List<Parcel> parcels, List<TruckType> truckTypes) {
+        long parcelsArea = 0;
+        for (Parcel parcel : parcels) {
+            parcelsArea += parcel.getCompiledShape().getFilledCells();
+        }
+        long fleetArea = 0;
+        for (TruckType type : truckTypes) {
+            fleetArea += type.totalArea();
+        }
+        if (parcelsArea > fleetArea) {
+            throw new InsufficientTrucksException("Посылки занимают " + parcelsArea
+                    + " клеток, а во всех грузовиках только " + fleetArea + " клеток.");
+        }
+    }
+
+    /**
+     * Для каждой посылки определяет множество типов грузовиков, в которые она помещается по габаритам
+     * хотя бы в одной ориентации, и суммирует площадь посылок с одинаковым множеством.
+     *
+     * @param parcels      список посылок
+     * @param truckTypes   типы грузовиков
+     * @param orientations функция, возвращающая допустимые ориентации посылки; если она не вернула ориентаций,
+     *                     проверяется форма посылки в заданном виде
+     * @return площадь посылок для каждого множества подходящих типов грузовиков
+     * @throws InsufficientTrucksException если посылка не помещается ни в один грузовик
+     */
+    private Map<BitSet, Integer> collectAreaByFitSet(List<Parcel> parcels, List<TruckType> truckTypes,
+                                                     Function<Parcel, List<CompiledShape>> orientations) {
+        Map<BitSet, Integer> areaByFitSet = new LinkedHashMap<>();
+        for (Parcel parcel : parcels) {
+            CompiledShape shape = parcel.getCompiledShape();
+            BitSet fitSet = new BitSet(truckTypes.size());
+            List<CompiledShape> parcelOrientations = orientations.apply(parcel);
+            for (CompiledShape orientation : parcelOrientations.isEmpty() ? List.of(shape) : parcelOrientations) {
+                for (int i = 0; i < truckTypes.size(); i++) {
+                    if (truckTypes.get(i).fits(orientation)) {
+                        fitSet.set(i);
+                    }
+                }
+            }
+            if (fitSet.isEmpty()) {
+                throw new InsufficientTrucksException("Посылка " + parcel.getName() + " размером "
+                        + shape.getWidth() + SIZE_SEPARATOR + shape.getHeight()
+                        + " не помещается ни в один из грузовиков: " + describe(truckTypes) + ".");
+            }
+            areaByFitSet.merge(fitSet, shape.getFilledCells(), Integer::sum);
+        }
+        return areaByFitSet;
+    }
+
+    /**
+     * Проверяет, что посылкам, которые помещаются только в часть грузовиков, хватает площади этих грузовиков.
+     * Для каждого встретившегося множества подходящих типов учитываются все посылки, чьё множество в него вложено.
+     *
+     * @param areaByFitSet площадь посылок для каждого множества подходящих типов грузовиков
+     * @param truckTypes   типы грузовиков
+     * @throws InsufficientTrucksException если площади подходящих грузовиков не хватает
+     */
+    private void checkRestrictedParcels(Map<BitSet, Integer> areaByFitSet, List<TruckType> truckTypes) {
+        for (BitSet fitSet : areaByFitSet.keySet()) {
+            long demand = 0;
+            for (Map.Entry<BitSet, Integer> entry : areaByFitSet.entrySet()) {
+                if (isSubset(entry.getKey(), fitSet)) {
+                    demand += entry.getValue();
+                }
+            }
+            long capacity = fitSet.stream().mapToLong(i -> truckTypes.get(i).totalArea()).sum();
+            if (demand > capacity) {
+                List<TruckType> suitable = fitSet.stream().mapToObj(truckTypes::get).toList();
+                throw new InsufficientTrucksException("Посылки, которые помещаются только в грузовики "
+                        + describe(suitable) + ", занимают " + demand + " клеток, а в этих грузовиках только "
+                        + capacity + " клеток.");
+            }
+        }
+    }
+
+    private boolean isSubset(BitSet subset, BitSet set) {
+        BitSet difference = (BitSet) subset.clone();
+        difference.andNot(set);
+        return difference.isEmpty();
+    }
+
+    private String describe(List<TruckType> truckTypes) {
+        return truckTypes.stream()
+                .map(type -> type.width() + SIZE_SEPARATOR + type.height() + " (" + type.count() + " шт.)")
+                .collect(Collectors.joining(TYPES_DELIMITER));
+    }
+
+    /**
+     * Тип грузовиков одного размера.
+     *
+     * @param width  ширина грузовика
+     * @param height высота грузовика
+     * @param count  количество грузовиков этого размера
+     */
+    private record TruckType(int width, int height, int count) {
+
+        boolean fits(CompiledShape shape) {
+            return shape.getWidth() <= width && shape.getHeight() <= height;
+        }
+
+        long totalArea() {
+            return (long) width * height * count;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.hofftech.parking.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CellGridTest {
+
+    @Test
+    @DisplayName("Пустая сетка большого грузовика не выделяет плиток и читается пробелами")
+    void testEmptyGrid_AllocatesNoTiles() {
+        CellGrid grid = new CellGrid(2000, 2000);
+
+        assertThat(grid.get(0, 0)).isEqualTo(' ');
+        assertThat(grid.get(1999, 1999)).isEqualTo(' ');
+        assertThat(grid.getAllocatedTiles()).isZero();
+    }
+
+    @Test
+    @DisplayName("Плитка, заполненная одним символом, освобождается и читается этим символом")
+    void testUniformTile_IsCollapsed() {
+        CellGrid grid = new CellGrid(70, 3);
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 64; x++) {
+                grid.set(x, y, '9');
+            }
+        }
+        grid.set(64, 0, '1');
+
+        assertThat(grid.getAllocatedTiles()).isEqualTo(1);
+        assertThat(grid.get(10, 2)).isEqualTo('9');
+        assertThat(grid.get(64, 0)).isEqualTo('1');
+        assertThat(grid.get(65, 0)).isEqualTo(' ');
+    }
+
+    @Test
+    @DisplayName("Запись в копию сетки не изменяет исходную сетку")
+    void testCopy_IsIndependent() {
+        CellGrid source = new CellGrid(10, 10);
+        source.set(1, 1, 'A');
+
+        CellGrid copy = new CellGrid(source);
+        copy.set(2, 1, 'B');
+        source.set(3, 1, 'C');
+
+        assertThat(source.get(2, 1)).isEqualTo(' ');
+        assertThat(copy.get(1, 1)).isEqualTo('A');
+        assertThat(copy.get(3, 1)).isEqualTo(' ');
+    }
+
+    @Test
+    @DisplayName("Сетка в области памяти вне кучи недоступна после закрытия области, а блоки возвращаются в пул")
+    void testArenaGrid_ReleasedOnClose() {
+        GridMemoryPool pool = new GridMemoryPool(GridMemoryPool.CHUNK_BYTES);
+        CellGrid grid;
+        try (GridArena ignored = pool.openArena()) {
+            grid = new CellGrid(10, 10);
+            grid.set(1, 1, 'A');
+            CellGrid copy = new CellGrid(grid);
+            copy.set(2, 1, 'B');
+
+            assertThat(grid.get(1, 1)).isEqualTo('A');
+            assertThat(grid.get(2, 1)).isEqualTo(' ');
+            assertThat(copy.get(2, 1)).isEqualTo('B');
+        }
+
+        assertThat(pool.getPooledChunks()).isEqualTo(1);
+        assertThatThrownBy(() -> grid.get(1, 1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Чтение и запись невыделенной плитки после закрытия области памяти завершаются ошибкой")
+    void testArenaGrid_EmptyTileRejectedAfterClose() {
+        GridMemoryPool pool = new GridMemoryPool(GridMemoryPool.CHUNK_BYTES);
+        CellGrid grid;
+        try (GridArena ignored = pool.openArena()) {
+            grid = new CellGrid(100, 100);
+            grid.set(1, 1, 'A');
+
+            assertThat(grid.get(90, 90)).isEqualTo(' ');
+        }
+
+        assertThatThrownBy(() -> grid.get(90, 90)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> grid.set(90, 90, 'B')).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> grid.clear(1, 1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Сетка, созданная в другом потоке задачей, привязанной к области, размещается вне кучи")
+    void testArenaGrid_BoundToWorkerThread() throws Exception {
+        GridMemoryPool pool = new GridMemoryPool(GridMemoryPool.CHUNK_BYTES);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (GridArena ignored = pool.openArena()) {
+            CellGrid unbound = executor.submit(() -> new CellGrid(10, 10)).get();
+            CellGrid bound = executor.submit(GridArena.inCurrentArena(() -> new CellGrid(10, 10))).get();
+            CellGrid afterTask = executor.submit(() -> new CellGrid(10, 10)).get();
+
+            assertThat(unbound.isOnHeap()).isTrue();
+            assertThat(bound.isOnHeap()).isFalse();
+            assertThat(afterTask.isOnHeap()).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.hofftech.parking.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class FreeSpaceIndexTest {
+
+    @Test
+    @DisplayName("Проверка вместимости отвечает по наибольшей высоте свободного прямоугольника для ширины")
+    void testCanFit_UsesLargestHeightForWidth() {
+        FreeSpaceIndex index = new FreeSpaceIndex(10, 10);
+        index.occupy(new GridRectangle(0, 0, 3, 10));
+        index.occupy(new GridRectangle(3, 0, 7, 4));
+
+        assertThat(index.canFit(7, 6)).isTrue();
+        assertThat(index.canFit(7, 7)).isFalse();
+        assertThat(index.canFit(8, 1)).isFalse();
+        assertThat(index.canFit(11, 1)).isFalse();
+    }
+
+    @Test
+    @DisplayName("В большом раздробленном грузовике число прямоугольников ограничено, а проверка остаётся оценкой сверху")
+    void testOccupy_FragmentedTruckKeepsRectangleCountBounded() {
+        FreeSpaceIndex index = new FreeSpaceIndex(200, 200);
+        for (int y = 0; y < 200; y += 3) {
+            for (int x = (y * 7) % 5; x < 200; x += 5) {
+                if (x < 150 || y < 150) {
+                    index.occupy(new GridRectangle(x, y, 1, 1));
+                }
+                assertThat(index.getRectangles().size()).isLessThanOrEqualTo(FreeSpaceIndex.MAX_RECTANGLES);
+            }
+        }
+
+        assertThat(index.isSaturated()).isTrue();
+        assertThat(index.canFit(50, 50)).isTrue();
+        assertThat(index.canFit(201, 1)).isFalse();
+
+        index.release(List.of(new GridRectangle(0, 0, 1, 1)), (x, y) -> false);
+        assertThat(index.canFit(200, 200)).isTrue();
+    }
+}
@@ -0,0 +1,34 @@
+package org.hofftech.parking.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TruckSizeTest {
+
+    @Test
+    @DisplayName("Размер в формате ширинаxвысота разбирается и форматируется обратно")
+    void testParse_RoundTrip() {
+        TruckSize size = TruckSize.parse(" 6 x 4 ");
+
+        assertThat(size).isEqualTo(new TruckSize(6, 4));
+        assertThat(TruckSize.format(size.width(), size.height())).isEqualTo("6x4");
+    }
+
+    @Test
+    @DisplayName("Некорректные размеры отклоняются с причиной")
+    void testParse_RejectsInvalidSizes() {
+        assertThatThrownBy(() -> TruckSize.parse("6x4x2"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("ширинаxвысота");
+        assertThatThrownBy(() -> TruckSize.parse(null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TruckSize.parse("ax4"))
+                .isInstanceOf(NumberFormatException.class)
+                .hasMessageContaining("числами");
+        assertThatThrownBy(() -> TruckSize.parse("0x4"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("положительными");
+    }
+}
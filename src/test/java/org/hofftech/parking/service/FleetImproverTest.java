@@ -0,0 +1,90 @@
+package org.hofftech.parking.service;
+
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class FleetImproverTest {
+
+    private static final Duration LONG_BUDGET = Duration.ofSeconds(30);
+
+    private final ParcelService parcelService = new ParcelService();
+
+    @Test
+    @DisplayName("Парк с одним занятым грузовиком возвращается сразу, без шагов поиска")
+    void testImprove_SingleLoadedTruckReturnsImmediately() {
+        Truck loaded = truckWith(new Parcel("P1", List.of("99"), '9', null));
+        Truck empty = new Truck(4, 4);
+
+        FleetImprover improver = improver(System.nanoTime());
+        List<Truck> result = improver.improve(List.of(loaded, empty));
+
+        assertThat(improver.getIterations()).isZero();
+        assertThat(result).containsExactly(loaded, empty);
+    }
+
+    @Test
+    @DisplayName("Поиск без возможных улучшений останавливается по счётчику шагов без улучшения и не ухудшает парк")
+    void testImprove_StopsWithoutImprovementAndKeepsInput() {
+        List<String> fullTruck = List.of("8888", "8888", "8888", "8888");
+        Truck first = truckWith(new Parcel("P1", fullTruck, '8', null));
+        Truck second = truckWith(new Parcel("P2", fullTruck, '8', null));
+
+        FleetImprover improver = improver(System.nanoTime());
+        List<Truck> result = improver.improve(List.of(first, second));
+
+        assertThat(improver.getIterations()).isEqualTo(FleetImprover.MAX_MOVES_WITHOUT_IMPROVEMENT);
+        assertThat(result).containsExactly(first, second);
+    }
+
+    @Test
+    @DisplayName("Результат улучшения занимает не больше грузовиков, чем исходный парк")
+    void testImprove_NeverWorseThanInput() {
+        Parcel parcel = new Parcel("P1", List.of("22", "22"), '2', null);
+        List<Truck> input = List.of(truckWith(parcel), truckWith(parcel), truckWith(parcel));
+
+        long startNanos = System.nanoTime();
+        List<Truck> result = new FleetImprover(parcelService, null, startNanos, startNanos + Duration.ofMillis(200).toNanos())
+                .improve(input);
+
+        assertThat(result).hasSize(3);
+        assertThat(result.stream().filter(truck -> !truck.getParcels().isEmpty()).count()).isEqualTo(1);
+        assertThat(result.stream().mapToInt(truck -> truck.getParcels().size()).sum()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Отброшенные при поиске грузовики возвращаются в пул, а грузовики результата — нет")
+    void testImprove_ReleasesDiscardedTrucksToPool() {
+        Parcel parcel = new Parcel("P1", List.of("22", "22"), '2', null);
+        List<Truck> input = List.of(truckWith(parcel), truckWith(parcel), truckWith(parcel));
+        TruckPool truckPool = new TruckPool(Long.MAX_VALUE);
+
+        long startNanos = System.nanoTime();
+        List<Truck> result = new FleetImprover(parcelService, truckPool, startNanos, startNanos + Duration.ofMillis(200).toNanos())
+                .improve(input);
+
+        assertThat(truckPool.getPooledBytes()).isPositive();
+        List<Truck> acquired = new ArrayList<>();
+        while (truckPool.getPooledBytes() > 0) {
+            acquired.add(truckPool.acquire(4, 4));
+        }
+        assertThat(acquired).doesNotContainAnyElementsOf(result);
+    }
+
+    private FleetImprover improver(long startNanos) {
+        return new FleetImprover(parcelService, null, startNanos, startNanos + LONG_BUDGET.toNanos());
+    }
+
+    private Truck truckWith(Parcel parcel) {
+        Truck truck = new Truck(4, 4);
+        parcelService.tryPack(truck, parcel);
+        return truck;
+    }
+}
@@ -0,0 +1,111 @@
+package org.hofftech.parking.service;
+
+import org.hofftech.parking.model.LoadRequest;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
+import org.hofftech.parking.model.Truck;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PackingResultCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger packings = new AtomicInteger();
+    private TruckService truckService;
+    private PackingResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        truckService = new TruckService(new ParcelService(), new FormatterService());
+        cache = new PackingResultCache(2, TTL, clock::get);
+    }
+
+    @Test
+    @DisplayName("Повторный запрос с теми же посылками в другом порядке берёт план из кэша")
+    void testGetOrPack_ReusesPlanForSameParcelMultiset() {
+        LoadRequest request = request(List.of("4x4"));
+
+        List<Truck> packed = load(request, parcels("999,999,999", "1", "22"));
+        List<Parcel> repeated = parcels("22", "1", "999,999,999");
+        List<Truck> cached = load(request, repeated);
+
+        assertThat(packings).hasValue(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(truckService.printTrucks(cached)).isEqualTo(truckService.printTrucks(packed));
+        assertThat(cached.getFirst().getParcels()).containsExactlyInAnyOrderElementsOf(repeated);
+        assertThat(cached.getFirst().getPlacements()).map(ParcelPlacement::position)
+                .containsExactlyElementsOf(packed.getFirst().getPlacements().stream().map(ParcelPlacement::position).toList());
+    }
+
+    @Test
+    @DisplayName("Запись с истёкшим временем жизни не используется")
+    void testGetOrPack_ExpiredEntryIsRepacked() {
+        LoadRequest request = request(List.of("4x4"));
+
+        load(request, parcels("1"));
+        clock.addAndGet(TTL.toNanos() + 1);
+        load(request, parcels("1"));
+
+        assertThat(packings).hasValue(2);
+        assertThat(cache.getHits()).isZero();
+    }
+
+    @Test
+    @DisplayName("После очистки кэша запрос упаковывается заново")
+    void testInvalidateAll_ForcesRepacking() {
+        LoadRequest request = request(List.of("4x4"));
+
+        load(request, parcels("1"));
+        cache.invalidateAll();
+        load(request, parcels("1"));
+
+        assertThat(packings).hasValue(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("При превышении размера вытесняется давно не использованная запись")
+    void testGetOrPack_EvictsLeastRecentlyUsed() {
+        load(request(List.of("4x4")), parcels("1"));
+        load(request(List.of("5x5")), parcels("1"));
+        load(request(List.of("4x4")), parcels("1"));
+        load(request(List.of("6x6")), parcels("1"));
+        load(request(List.of("5x5")), parcels("1"));
+
+        assertThat(packings).hasValue(4);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    private List<Truck> load(LoadRequest request, List<Parcel> parcels) {
+        return cache.getOrPack(request, parcels, () -> {
+            packings.incrementAndGet();
+            return truckService.addParcelsToMultipleTrucks(parcels, false, new ArrayList<>(request.trucksFromArgs()));
+        });
+    }
+
+    private List<Parcel> parcels(String... forms) {
+        List<Parcel> parcels = new ArrayList<>();
+        for (String form : forms) {
+            List<String> shape = List.of(form.split(","));
+            parcels.add(new Parcel("P" + parcels.size(), shape, shape.getFirst().charAt(0), null));
+        }
+        return parcels;
+    }
+
+    private LoadRequest request(List<String> trucks) {
+        return new LoadRequest(null, null, trucks, false, false, false,
+                false, false, false, false, false, null, "user");
+    }
+}
@@ -1,7 +1,11 @@
 package org.hofftech.parking.service;
 
+import org.hofftech.parking.model.FreeSpaceIndex;
+import org.hofftech.parking.model.GridRectangle;
 import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
 import org.hofftech.parking.model.ParcelStartPosition;
+import org.hofftech.parking.model.PlacementIndex;
 import org.hofftech.parking.model.Truck;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,6 +15,7 @@ import static org.assertj.core.api.Assertions.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 class ParcelServiceTest {
 
@@ -39,10 +44,10 @@ class ParcelServiceTest {
                 .as("Посылка должна быть успешно добавлена")
                 .isTrue();
 
-        ParcelStartPosition pos = parcel.getParcelStartPosition();
-        assertThat(pos)
-                .as("Позиция посылки должна быть установлена")
-                .isNotNull();
+        ParcelStartPosition pos = truck.getPlacements().getFirst().position();
+        assertThat(parcel.getParcelStartPosition())
+                .as("Позиция записывается в размещение, а не в посылку")
+                .isNull();
 
         List<String> expectedShape = parcel.getReversedShape();
 
@@ -124,7 +129,7 @@ class ParcelServiceTest {
                 .as("Посылка должна быть успешно добавлена")
                 .isTrue();
 
-        ParcelStartPosition pos = parcel.getParcelStartPosition();
+        ParcelStartPosition pos = truck.getPlacements().getFirst().position();
         assertThat(pos.x())
                 .as("X позиция должна быть 0")
                 .isEqualTo(0);
@@ -165,6 +170,140 @@ class ParcelServiceTest {
     }
 
 
+    @Test
+    @DisplayName("Тестирует обновление счётчиков свободных клеток после размещения посылки")
+    void testAddPackage_UpdatesFreeCellCounters() {
+        List<String> shape = List.of(
+                "XXXXXXXXXX",
+                "XXXXXXXXXX",
+                "XXX"
+        );
+        Parcel parcel = new Parcel("Parcel1", shape, 'X', null);
+
+        boolean result = parcelService.tryPack(truck, parcel);
+        assertThat(result)
+                .as("Посылка должна быть успешно добавлена")
+                .isTrue();
+
+        assertThat(truck.getFreeCells())
+                .as("Свободных клеток должно стать меньше на площадь посылки")
+                .isEqualTo(100 - 23);
+        assertThat(truck.getRowFreeCells(0))
+                .as("Нижняя строка формы занимает три клетки")
+                .isEqualTo(7);
+        assertThat(truck.getRowFreeCells(2))
+                .as("Верхняя строка формы заполняет строку целиком")
+                .isZero();
+        assertThat(truck.getLowestOpenRow())
+                .as("Нижняя строка ещё не заполнена")
+                .isZero();
+    }
+
+
+    @Test
+    @DisplayName("Тестирует повторное размещение одной и той же посылки без её изменения")
+    void testAddPackage_SameParcelPlacedTwice() {
+        Parcel parcel = new Parcel("Parcel1", List.of("XX"), 'X', null);
+
+        assertThat(parcelService.tryPack(truck, parcel)).isTrue();
+        assertThat(parcelService.tryPack(truck, parcel)).isTrue();
+
+        assertThat(truck.getPlacements())
+                .as("Каждое размещение хранит свою позицию")
+                .extracting(ParcelPlacement::position)
+                .containsExactly(new ParcelStartPosition(0, 0), new ParcelStartPosition(2, 0));
+        assertThat(truck.getParcels())
+                .as("Оба размещения ссылаются на одну посылку")
+                .containsExactly(parcel, parcel);
+        assertThat(parcel.getParcelStartPosition())
+                .as("Посылка не изменяется при размещении")
+                .isNull();
+    }
+
+    @Test
+    @DisplayName("Тестирует восстановление посылки в сохранённой позиции и отказ при пересечении")
+    void testRestoreParcel_PlacesAtGivenPositionOrRejectsOverlap() {
+        Parcel saved = new Parcel("Saved", List.of("XX"), 'X', null);
+        Parcel overlapping = new Parcel("Overlapping", List.of("YY"), 'Y', null);
+
+        assertThat(parcelService.restoreParcel(truck, saved, 3, 4)).isTrue();
+        assertThat(parcelService.restoreParcel(truck, overlapping, 4, 4))
+                .as("Посылка не должна пересекаться с восстановленной")
+                .isFalse();
+
+        assertThat(truck.getPlacements())
+                .extracting(ParcelPlacement::position)
+                .containsExactly(new ParcelStartPosition(3, 4));
+        assertThat(getGridSection(truck, new ParcelStartPosition(3, 4), 1, 2)).containsExactly("XX");
+    }
+
+    @Test
+    @DisplayName("Тестирует индекс размещений для посылок с одинаковым символом")
+    void testPlaceParcel_IndexesCellsByPlacement() {
+        Parcel parcel = new Parcel("Parcel1", List.of("XX"), 'X', null);
+
+        parcelService.restoreParcel(truck, parcel, 0, 0);
+        parcelService.restoreParcel(truck, parcel, 2, 0);
+
+        assertThat(truck.getPlacementId(1, 0)).isZero();
+        assertThat(truck.getPlacementId(2, 0)).isEqualTo(1);
+        assertThat(truck.getPlacementId(4, 0)).isEqualTo(PlacementIndex.NO_PLACEMENT);
+        assertThat(truck.getPlacementCells(1))
+                .containsExactly(new ParcelStartPosition(2, 0), new ParcelStartPosition(3, 0));
+    }
+
+    @Test
+    @DisplayName("Тестирует выгрузку посылки с проверкой опоры оставшихся посылок")
+    void testRemovePlacements_ChecksSupportAndReindexes() {
+        parcelService.restoreParcel(truck, new Parcel("Base", List.of("XXX"), 'X', null), 0, 0);
+        parcelService.restoreParcel(truck, new Parcel("Side", List.of("S"), 'S', null), 3, 0);
+        parcelService.restoreParcel(truck, new Parcel("Top", List.of("TTTT"), 'T', null), 0, 1);
+
+        assertThat(parcelService.findUnsupportedAfterRemoval(truck, Set.of(0)))
+                .map(placement -> placement.parcel().getName())
+                .contains("Top");
+        assertThat(parcelService.findUnsupportedAfterRemoval(truck, Set.of(1))).isEmpty();
+
+        truck.removePlacements(Set.of(1));
+
+        assertThat(truck.getParcels()).extracting(Parcel::getName).containsExactly("Base", "Top");
+        assertThat(truck.isOccupied(3, 0)).isFalse();
+        assertThat(truck.getCell(3, 0)).isEqualTo(' ');
+        assertThat(truck.getPlacementId(3, 1)).isEqualTo(1);
+        assertThat(truck.getFreeCells()).isEqualTo(100 - 7);
+
+        truck.removePlacements(Set.of(1));
+
+        assertThat(truck.getColumnHeight(0)).isEqualTo(1);
+        assertThat(truck.getColumnHeight(3)).isZero();
+        assertThat(truck.getPlacementId(3, 1)).isEqualTo(PlacementIndex.NO_PLACEMENT);
+    }
+
+    @Test
+    @DisplayName("Тестирует, что после выгрузки индекс свободного пространства совпадает с построенным заново")
+    void testRemovePlacements_UpdatesFreeSpaceIncrementally() {
+        parcelService.restoreParcel(truck, new Parcel("Base", List.of("999", "999", "999"), '9', null), 0, 0);
+        parcelService.restoreParcel(truck, new Parcel("Side", List.of("4444"), '4', null), 3, 0);
+        parcelService.restoreParcel(truck, new Parcel("Top", List.of("22"), '2', null), 4, 1);
+        parcelService.restoreParcel(truck, new Parcel("Far", List.of("1"), '1', null), 9, 0);
+
+        truck.removePlacements(Set.of(0, 2));
+
+        FreeSpaceIndex rebuilt = new FreeSpaceIndex(10, 10);
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                if (truck.isOccupied(x, y)) {
+                    rebuilt.occupy(new GridRectangle(x, y, 1, 1));
+                }
+            }
+        }
+        assertThat(truck.getFreeSpace().getRectangles())
+                .containsExactlyInAnyOrderElementsOf(rebuilt.getRectangles());
+        assertThat(truck.getFreeSpace().canFit(9, 10)).isFalse();
+        assertThat(truck.getFreeSpace().canFit(3, 10)).isTrue();
+    }
+
+
     /**
      * Вспомогательный метод для извлечения секции сетки грузовика, соответствующей положению посылки.
      *
@@ -175,12 +314,11 @@ class ParcelServiceTest {
      * @return Список строк, представляющих соответствующую секцию сетки грузовика.
      */
     private List<String> getGridSection(Truck truck, ParcelStartPosition pos, int height, int width) {
-        char[][] grid = truck.getGrid();
         List<String> section = new ArrayList<>();
         for (int row = 0; row < height; row++) {
             StringBuilder sb = new StringBuilder();
             for (int col = 0; col < width; col++) {
-                sb.append(grid[pos.y() + row][pos.x() + col]);
+                sb.append(truck.getCell(pos.x() + col, pos.y() + row));
             }
             section.add(sb.toString());
         }
@@ -0,0 +1,75 @@
+package org.hofftech.parking.service;
+
+import org.hofftech.parking.model.CompiledShape;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.ParcelPlacement;
+import org.hofftech.parking.model.ParcelStartPosition;
+import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.validator.ParcelValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RotatingParcelServiceTest {
+
+    private RotatingParcelService parcelService;
+
+    @BeforeEach
+    void setUp() {
+        parcelService = new RotatingParcelService(new ParcelValidator());
+    }
+
+    @Test
+    @DisplayName("Длинная посылка поворачивается, чтобы поместиться в узкий грузовик")
+    void testTryPack_RotatesToFitNarrowTruck() {
+        Truck truck = new Truck(1, 4);
+        Parcel parcel = new Parcel("Long", List.of("4444"), '4', null);
+
+        assertThat(parcelService.tryPack(truck, parcel)).isTrue();
+        ParcelPlacement placement = truck.getPlacements().getFirst();
+        assertThat(placement.shape().getRows()).containsExactly("4", "4", "4", "4");
+        assertThat(placement.position()).isEqualTo(new ParcelStartPosition(0, 0));
+        assertThat(parcel.getShape()).containsExactly("4444");
+        assertThat(truck.getFreeCells()).isZero();
+    }
+
+    @Test
+    @DisplayName("Симметричная форма даёт одну ориентацию")
+    void testOrientationsOf_DeduplicatesSymmetricShape() {
+        Parcel parcel = new Parcel("Square", List.of("999", "999", "999"), '9', null);
+
+        assertThat(parcelService.orientationsOf(parcel)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Ориентации с висящими символами отбрасываются")
+    void testOrientationsOf_SkipsOrientationsRejectedByValidator() {
+        Parcel parcel = new Parcel("Tee", List.of("eee", " e "), 'e', null);
+
+        List<List<String>> rows = parcelService.orientationsOf(parcel).stream()
+                .map(CompiledShape::getRows)
+                .toList();
+
+        assertThat(rows).containsExactly(List.of("eee", " e"));
+    }
+
+    @Test
+    @DisplayName("Размещается ориентация, найденная поиском позиции, без повторного подбора")
+    void testTryPack_PlacesOrientationChosenBySearch() {
+        Truck truck = new Truck(3, 3);
+        parcelService.tryPack(truck, new Parcel("Base", List.of("11"), '1', null));
+        Parcel parcel = new Parcel("Corner", List.of("8", "88"), '8', null);
+
+        ParcelPlacement found = parcelService.findPosition(truck, parcel).orElseThrow();
+        assertThat(parcelService.tryPack(truck, parcel)).isTrue();
+
+        ParcelPlacement placed = truck.getPlacements().getLast();
+        assertThat(placed.shape()).isSameAs(found.shape());
+        assertThat(placed.position()).isEqualTo(found.position());
+        assertThat(parcelService.orientationsOf(parcel)).contains(placed.shape());
+    }
+}
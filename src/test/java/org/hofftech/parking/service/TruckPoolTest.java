@@ -0,0 +1,83 @@
+package org.hofftech.parking.service;
+
+import org.hofftech.parking.model.GridArena;
+import org.hofftech.parking.model.GridMemoryPool;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TruckPoolTest {
+
+    private final ParcelService parcelService = new ParcelService();
+    private final FormatterService formatterService = new FormatterService();
+
+    @Test
+    @DisplayName("Возвращённый грузовик выдаётся повторно очищенным")
+    void testAcquire_ReusesResetTruck() {
+        TruckPool pool = new TruckPool(1 << 20);
+        Truck truck = pool.acquire(4, 3);
+        parcelService.tryPack(truck, new Parcel("P1", List.of("99", "99"), '9', null));
+
+        pool.releaseAll(List.of(truck));
+        Truck reused = pool.acquire(4, 3);
+
+        assertThat(reused).isSameAs(truck);
+        assertThat(reused.getPlacements()).isEmpty();
+        assertThat(reused.getFreeCells()).isEqualTo(12);
+        assertThat(formatterService.getTruckRepresentation(reused))
+                .isEqualTo(formatterService.getTruckRepresentation(new Truck(4, 3)));
+    }
+
+    @Test
+    @DisplayName("Очистка грузовика из пула не затрагивает его снимок")
+    void testAcquire_KeepsSnapshotIntact() {
+        TruckPool pool = new TruckPool(1 << 20);
+        Truck truck = pool.acquire(4, 3);
+        parcelService.tryPack(truck, new Parcel("P1", List.of("99", "99"), '9', null));
+        Truck snapshot = truck.snapshot();
+        String expected = formatterService.getTruckRepresentation(snapshot);
+
+        pool.releaseAll(List.of(truck));
+        parcelService.tryPack(pool.acquire(4, 3), new Parcel("P2", List.of("1111"), '1', null));
+
+        assertThat(formatterService.getTruckRepresentation(snapshot)).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("Грузовики сверх лимита памяти и грузовики с сеткой вне кучи не сохраняются")
+    void testReleaseAll_RespectsLimitAndSkipsOffHeapTrucks() {
+        TruckPool pool = new TruckPool(1);
+        pool.releaseAll(List.of(new Truck(4, 3)));
+
+        assertThat(pool.getPooledBytes()).isZero();
+
+        TruckPool largePool = new TruckPool(1 << 20);
+        try (GridArena ignored = new GridMemoryPool(0).openArena()) {
+            largePool.releaseAll(List.of(new Truck(4, 3)));
+        }
+
+        assertThat(largePool.getPooledBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Оценка памяти грузовика учитывает карту занятости, сетку, индекс размещений и счётчики")
+    void testReleaseAll_EstimateIncludesPlacementIndex() {
+        Truck truck = new Truck(4, 3);
+        long expectedBytes = 3 * Long.BYTES + 12 * Character.BYTES + 12 * Integer.BYTES + 7 * Integer.BYTES;
+
+        assertThat(TruckPool.estimateBytes(truck)).isEqualTo(expectedBytes);
+
+        TruckPool tightPool = new TruckPool(expectedBytes - 1);
+        tightPool.releaseAll(List.of(truck));
+        assertThat(tightPool.getPooledBytes()).isZero();
+
+        TruckPool exactPool = new TruckPool(expectedBytes);
+        exactPool.releaseAll(List.of(truck));
+        assertThat(exactPool.getPooledBytes()).isEqualTo(expectedBytes);
+    }
+}
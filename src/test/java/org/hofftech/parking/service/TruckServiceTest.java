@@ -12,6 +12,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -57,7 +59,94 @@ class TruckServiceTest {
             verify(parcelService, times(1)).tryPack(truck2, parcels.get(1));
             verify(parcelService, times(2)).tryPack(any(Truck.class), eq(parcels.get(1)));
         }
+
+        @Test
+        @DisplayName("Равномерное распределение размещает посылку в наименее загруженном грузовике")
+        void testDistributeParcelsEvenlyTargetsLeastLoadedTruck() {
+            // Arrange
+            Truck loadedTruck = new Truck(5, 5);
+            Truck emptyTruck = new Truck(5, 5);
+            Parcel loaded = new Parcel("Loaded", List.of("XX"), 'X', null);
+            new ParcelService().placeParcel(loadedTruck, loaded, loaded.getCompiledShape(), 0, 0);
+            Parcel parcel = new Parcel("P1", List.of("YY"), 'Y', null);
+
+            when(parcelService.tryPack(any(Truck.class), eq(parcel))).thenReturn(true);
+
+            // Act
+            truckService.distributeParcelsEvenly(List.of(parcel), List.of(loadedTruck, emptyTruck));
+
+            // Assert
+            verify(parcelService, times(1)).tryPack(emptyTruck, parcel);
+            verify(parcelService, never()).tryPack(loadedTruck, parcel);
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты для метода addParcelsToBestFitTrucks")
+    class AddParcelsToBestFitTrucksTests {
+
+        @Test
+        @DisplayName("Посылка сначала пробуется в грузовике с наименьшей свободной площадью")
+        void testBestFitTriesTightestTruckFirst() {
+            // Arrange
+            Parcel parcel = new Parcel("P1", List.of("XX"), 'X', null);
+            List<Parcel> parcels = new ArrayList<>(List.of(parcel));
+
+            when(parcelService.tryPack(any(Truck.class), eq(parcel))).thenReturn(true);
+
+            // Act
+            List<Truck> trucks = truckService.addParcelsToBestFitTrucks(parcels, List.of("10x10", "3x3"));
+
+            // Assert
+            assertThat(trucks).hasSize(2);
+            verify(parcelService, times(1)).tryPack(trucks.get(1), parcel);
+            verify(parcelService, never()).tryPack(trucks.get(0), parcel);
+        }
+
+        @Test
+        @DisplayName("Грузовики, в которых меньше свободных клеток, чем занимает посылка, не перебираются")
+        void testBestFitSkipsTrucksWithoutEnoughFreeCells() {
+            // Arrange
+            Parcel parcel = new Parcel("P1", List.of("XXXXX", "XXXXX"), 'X', null);
+            List<Parcel> parcels = new ArrayList<>(List.of(parcel));
+
+            // Act & Assert
+            assertThatThrownBy(() -> truckService.addParcelsToBestFitTrucks(parcels, List.of("3x3")))
+                    .isInstanceOf(InsufficientTrucksException.class);
+
+            verify(parcelService, never()).tryPack(any(Truck.class), any(Parcel.class));
+        }
     }
 
+    @Nested
+    @DisplayName("Тесты для метода addParcelsWithBranchAndBound")
+    class AddParcelsWithBranchAndBoundTests {
+
+        private final TruckService packingTruckService = new TruckService(new ParcelService(), new FormatterService());
+        private final Parcel square = new Parcel("P1", List.of("22", "22"), '2', null);
+
+        @Test
+        @DisplayName("Погрузка, отклонённая предварительной проверкой, не запускает перебор")
+        void testBranchAndBoundRethrowsFeasibilityRejection() {
+            List<Parcel> parcels = new ArrayList<>(List.of(square, square, square));
 
+            assertThatThrownBy(() -> packingTruckService.addParcelsWithBranchAndBound(
+                    parcels, List.of("3x3"), Duration.ofMinutes(1)))
+                    .isInstanceOf(InsufficientTrucksException.class)
+                    .hasMessageContaining("12")
+                    .hasMessageNotContaining("отведённое время");
+        }
+
+        @Test
+        @DisplayName("Завершённый без решения перебор сообщает о невозможности погрузки, а не об истечении времени")
+        void testBranchAndBoundReportsProvenInfeasibility() {
+            List<Parcel> parcels = new ArrayList<>(List.of(square, square));
+
+            assertThatThrownBy(() -> packingTruckService.addParcelsWithBranchAndBound(
+                    parcels, List.of("3x3"), Duration.ofMinutes(1)))
+                    .isInstanceOf(InsufficientTrucksException.class)
+                    .hasMessageContaining("не помещаются")
+                    .hasMessageNotContaining("отведённое время");
+        }
+    }
 }
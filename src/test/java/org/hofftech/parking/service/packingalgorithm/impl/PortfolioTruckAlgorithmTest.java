@@ -0,0 +1,89 @@
+package org.hofftech.parking.service.packingalgorithm.impl;
+
+import org.hofftech.parking.exception.InsufficientTrucksException;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.service.TruckService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PortfolioTruckAlgorithmTest {
+
+    private static final Duration BUDGET = Duration.ofMillis(100);
+    private static final long BLOCKING_MILLIS = 60_000;
+    private static final long CANCELLATION_WAIT_MILLIS = 30_000;
+
+    @Mock
+    private TruckService truckService;
+
+    private final ExecutorService executor = PortfolioTruckAlgorithm.newExecutor(5);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("По истечении времени возвращается завершившаяся эвристика, а остальные отменяются")
+    void testAddParcels_CancelsUnfinishedRunsAtDeadline() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(3);
+        List<Truck> bestFitTrucks = List.of(new Truck(3, 3));
+        when(truckService.addParcelsToMultipleTrucks(anyList(), any(), anyList(), any()))
+                .thenAnswer(blockUntilCancelled(cancelled));
+        when(truckService.addParcelsToBestFitTrucks(anyList(), anyList(), any())).thenReturn(bestFitTrucks);
+
+        List<Truck> result = new PortfolioTruckAlgorithm(truckService, BUDGET, executor)
+                .addParcels(parcels(), false, false, List.of("3x3"));
+
+        assertThat(result).isSameAs(bestFitTrucks);
+        assertThat(cancelled.await(CANCELLATION_WAIT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Если не завершилась ни одна эвристика, ожидание базовой упаковки ограничено по времени")
+    void testAddParcels_LimitsBaselineWait() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(5);
+        when(truckService.addParcelsToMultipleTrucks(anyList(), any(), anyList(), any()))
+                .thenAnswer(blockUntilCancelled(cancelled));
+        when(truckService.addParcelsToBestFitTrucks(anyList(), anyList(), any()))
+                .thenAnswer(blockUntilCancelled(cancelled));
+        PortfolioTruckAlgorithm algorithm = new PortfolioTruckAlgorithm(truckService, BUDGET, executor);
+
+        assertThatThrownBy(() -> algorithm.addParcels(parcels(), false, false, List.of("3x3")))
+                .isInstanceOf(InsufficientTrucksException.class);
+
+        assertThat(cancelled.await(CANCELLATION_WAIT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+    }
+
+    private Answer<List<Truck>> blockUntilCancelled(CountDownLatch cancelled) {
+        return invocation -> {
+            try {
+                Thread.sleep(BLOCKING_MILLIS);
+            } catch (InterruptedException e) {
+                cancelled.countDown();
+                throw new CancellationException();
+            }
+            return List.of();
+        };
+    }
+
+    private List<Parcel> parcels() {
+        return List.of(new Parcel("P1", List.of("11"), '1', null));
+    }
+}
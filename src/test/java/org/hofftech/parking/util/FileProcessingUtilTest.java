@@ -0,0 +1,77 @@
+package org.hofftech.parking.util;
+
+import org.hofftech.parking.factory.ParcelAlgorithmFactory;
+import org.hofftech.parking.model.LoadRequest;
+import org.hofftech.parking.model.LoadResult;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+import org.hofftech.parking.parcer.ParsingService;
+import org.hofftech.parking.service.OrderManagerService;
+import org.hofftech.parking.service.TruckService;
+import org.hofftech.parking.service.json.JsonProcessingService;
+import org.hofftech.parking.service.packingalgorithm.PackingAlgorithm;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileProcessingUtilTest {
+
+    private static final String PARCELS_TEXT = "Parcel1";
+
+    @Mock
+    private ParsingService parsingService;
+
+    @Mock
+    private TruckService truckService;
+
+    @Mock
+    private JsonProcessingService jsonProcessingService;
+
+    @Mock
+    private ParcelAlgorithmFactory parcelAlgorithmFactory;
+
+    @Mock
+    private OrderManagerService orderManagerService;
+
+    @Mock
+    private PackingAlgorithm packingAlgorithm;
+
+    @InjectMocks
+    private FileProcessingUtil fileProcessingUtil;
+
+    @Test
+    @DisplayName("Пакетная погрузка отклоняет запросы с сохранением в файл и выполняет остальные")
+    void testProcessBatch_RejectsSaveToFile() {
+        LoadRequest saving = request(true, "user1");
+        LoadRequest printing = request(false, "user2");
+        List<Parcel> parcels = List.of(new Parcel("Parcel1", List.of("1"), '1', null));
+        List<Truck> trucks = List.of(new Truck(3, 3));
+        when(parsingService.getParcels(null, PARCELS_TEXT)).thenReturn(parcels);
+        when(parcelAlgorithmFactory.createStrategy(printing)).thenReturn(packingAlgorithm);
+        when(packingAlgorithm.addParcels(anyList(), anyBoolean(), anyBoolean(), anyList())).thenReturn(trucks);
+        when(truckService.printTrucks(trucks)).thenReturn("Грузовики");
+
+        List<LoadResult> results = fileProcessingUtil.processBatch(List.of(saving, printing));
+
+        assertThat(results).extracting(LoadResult::request).containsExactly(saving, printing);
+        assertThat(results.get(0).isSuccessful()).isFalse();
+        assertThat(results.get(0).error()).contains("пакетной погрузке");
+        assertThat(results.get(1).output()).isEqualTo("Грузовики");
+        verify(jsonProcessingService, never()).saveToJson(anyList());
+        verify(parsingService, times(1)).getParcels(null, PARCELS_TEXT);
+    }
+
+    private static LoadRequest request(boolean isSaveToFile, String user) {
+        return new LoadRequest(null, PARCELS_TEXT, List.of("3x3"), false, isSaveToFile, false,
+                false, false, false, false, false, null, user);
+    }
+}
@@ -0,0 +1,78 @@
+package org.hofftech.parking.validator;
+
+import org.hofftech.parking.exception.InsufficientTrucksException;
+import org.hofftech.parking.model.Parcel;
+import org.hofftech.parking.model.Truck;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LoadFeasibilityValidatorTest {
+
+    private LoadFeasibilityValidator feasibilityValidator;
+
+    @BeforeEach
+    void setUp() {
+        feasibilityValidator = new LoadFeasibilityValidator();
+    }
+
+    @Test
+    void testValidate_FeasibleLoad() {
+        List<Parcel> parcels = List.of(
+                new Parcel("P1", List.of("333"), '3', null),
+                new Parcel("P2", List.of("22"), '2', null)
+        );
+
+        assertThatCode(() -> feasibilityValidator.validate(parcels, List.of(new Truck(3, 2))))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void testValidate_TotalAreaExceedsFleet() {
+        List<Parcel> parcels = List.of(
+                new Parcel("P1", List.of("333"), '3', null),
+                new Parcel("P2", List.of("333"), '3', null)
+        );
+
+        assertThatThrownBy(() -> feasibilityValidator.validate(parcels, List.of(new Truck(5, 1))))
+                .isInstanceOf(InsufficientTrucksException.class)
+                .hasMessage("Посылки занимают 6 клеток, а во всех грузовиках только 5 клеток.");
+    }
+
+    @Test
+    void testValidate_ParcelWiderThanAnyTruck() {
+        List<Parcel> parcels = List.of(new Parcel("P1", List.of("4444"), '4', null));
+
+        assertThatThrownBy(() -> feasibilityValidator.validate(parcels, List.of(new Truck(3, 3))))
+                .isInstanceOf(InsufficientTrucksException.class)
+                .hasMessageContaining("Посылка P1 размером 4x1 не помещается ни в один из грузовиков");
+    }
+
+    @Test
+    void testValidate_RestrictedParcelsExceedSuitableTrucks() {
+        List<Parcel> parcels = List.of(
+                new Parcel("P1", List.of("4444"), '4', null),
+                new Parcel("P2", List.of("4444"), '4', null)
+        );
+        List<Truck> trucks = List.of(new Truck(4, 1), new Truck(2, 10));
+
+        assertThatThrownBy(() -> feasibilityValidator.validate(parcels, trucks))
+                .isInstanceOf(InsufficientTrucksException.class)
+                .hasMessage("Посылки, которые помещаются только в грузовики 4x1 (1 шт.), "
+                        + "занимают 8 клеток, а в этих грузовиках только 4 клеток.");
+    }
+
+    @Test
+    void testValidateDimensions_IgnoresTotalArea() {
+        List<Parcel> parcels = List.of(
+                new Parcel("P1", List.of("333"), '3', null),
+                new Parcel("P2", List.of("333"), '3', null)
+        );
+
+        assertThatCode(() -> feasibilityValidator.validateDimensions(parcels, List.of(new Truck(3, 1))))
+                .doesNotThrowAnyException();
+    }
+}